@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.BeanUtils;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.PrincipalCache;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+
+/**
+ * AuthTokenFilter from the Authorization header to the authenticated security context.
+ *
+ * The user lookup goes to a UserDetailsServiceImpl over a proxy standing in for the
+ * repository, so the "loaded" mode measures the filter's own work on a principal cache
+ * miss, not a query.
+ * "cached" is the default configuration and "stateless" trusts the token's claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthTokenFilterBenchmark {
+    private static final FilterChain CHAIN = (request, response) -> { };
+
+    @Param({"cached", "loaded", "stateless"})
+    private String mode;
+
+    private AuthTokenFilter filter;
+
+    private MockHttpServletRequest request;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Setup
+    public void setUp() throws Exception {
+        JwtUtils jwtUtils = JwtVerificationBenchmark.jwtUtils(10000);
+        ReflectionTestUtils.setField(jwtUtils, "stateless", "stateless".equals(mode));
+
+        User user = User.builder().id(1L).email("yoga@studio.com").firstName("Admin").lastName("Admin")
+                .password("secret").admin(true).build();
+        Optional<User> found = Optional.of(user);
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findByEmail")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return found;
+                });
+        UserDetailsServiceImpl userDetailsService = BeanUtils.instantiateClass(
+                UserDetailsServiceImpl.class.getDeclaredConstructor(UserRepository.class), userRepository);
+
+        RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+        when(revokedTokenRepository.findActiveIds(any())).thenReturn(Collections.emptyList());
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(revokedTokenRepository, jwtUtils, 100000, 0.01, 10000, 3600000);
+        tokenRevocationService.rebuild();
+
+        filter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "principalCache", new PrincipalCache("loaded".equals(mode) ? 0 : 60000, 10000));
+        ReflectionTestUtils.setField(filter, "tokenRevocationService", tokenRevocationService);
+
+        UserDetailsImpl principal = userDetailsService.loadUserByUsername(user.getEmail());
+        request = new MockHttpServletRequest("GET", "/api/session");
+        request.addHeader("Authorization", "Bearer " + jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null)));
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, response, CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
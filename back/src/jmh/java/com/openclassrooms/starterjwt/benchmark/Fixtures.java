@@ -0,0 +1,57 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+
+/**
+ * Sessions, participants and DTOs shaped like the seeded data, built without a database.
+ */
+final class Fixtures {
+    static final Teacher TEACHER = Teacher.builder().id(1L).firstName("Margot").lastName("DELAHAYE").build();
+
+    private static final String DESCRIPTION = "Une séance de yoga doux pour étirer le dos, respirer et se détendre en fin de journée.";
+
+    private Fixtures() {
+    }
+
+    static List<User> users(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> User.builder()
+                        .id(id)
+                        .email("user" + id + "@studio.com")
+                        .firstName("First" + id)
+                        .lastName("Last" + id)
+                        .password("$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq")
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    static Session session(long id, List<User> users) {
+        return Session.builder()
+                .id(id)
+                .name("Session " + id)
+                .date(new Date(1700000000000L + id * 3600000L))
+                .description(DESCRIPTION)
+                .capacity(Math.max(1, users.size()))
+                .teacher(TEACHER)
+                .users(new ArrayList<>(users))
+                .createdAt(LocalDateTime.of(2024, 1, 1, 10, 0))
+                .updatedAt(LocalDateTime.of(2024, 1, 2, 10, 0))
+                .build();
+    }
+
+    static SessionDto sessionDto(long id, int participants) {
+        return new SessionDto(id, "Session " + id, new Date(1700000000000L + id * 3600000L), TEACHER.getId(), DESCRIPTION,
+                Math.max(1, participants), LongStream.rangeClosed(1, participants).boxed().collect(Collectors.toList()),
+                LocalDateTime.of(2024, 1, 1, 10, 0), LocalDateTime.of(2024, 1, 2, 10, 0));
+    }
+}
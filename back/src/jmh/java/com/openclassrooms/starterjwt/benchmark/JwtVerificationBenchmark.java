@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Tokens verified per second by AuthTokenFilter: the former validate-then-parse path,
+ * a single verification with the precomputed key, and a hit in the verified-token cache
+ * from 8 threads at once, as concurrent requests share it; plus tokens signed per second
+ * at login and the subject lookup other callers use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtVerificationBenchmark {
+    private static final String SECRET = "openclassrooms";
+
+    private JwtUtils uncached;
+
+    private JwtUtils cached;
+
+    private String token;
+
+    private UsernamePasswordAuthenticationToken authentication;
+
+    @Setup
+    public void setUp() {
+        uncached = jwtUtils(0);
+        cached = jwtUtils(10000);
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").build();
+        authentication = new UsernamePasswordAuthenticationToken(principal, null);
+        token = cached.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public String generate() {
+        return uncached.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return uncached.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public String userName() {
+        return uncached.getUserNameFromJwtToken(token);
+    }
+
+    @Benchmark
+    public String validateThenParse() {
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token);
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return uncached.parseJwtToken(token).getSubject();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String singlePassCached() {
+        return cached.parseJwtToken(token).getSubject();
+    }
+
+    static JwtUtils jwtUtils(int cacheEntries) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        ReflectionTestUtils.setField(jwtUtils, "statelessExpirationMs", 300000);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheMaxEntries", cacheEntries);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+}
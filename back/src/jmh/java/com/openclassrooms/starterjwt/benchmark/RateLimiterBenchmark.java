@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.openclassrooms.starterjwt.security.ratelimit.RateLimiter;
+
+/**
+ * Cost of the rate-limit check on the request path with 64 threads: every thread on the
+ * same user's bucket, every thread on its own clients, and the disabled limiter as baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(64)
+public class RateLimiterBenchmark {
+    private static final String[] RULES = {"POST /api/auth/login=ip:10/60", "/api/**=user:1000000000/1", "/api/**=ip:1000000000/1"};
+
+    private final RateLimiter limiter = new RateLimiter(true, RULES, 100000);
+
+    private final RateLimiter disabled = new RateLimiter(false, RULES, 100000);
+
+    @State(Scope.Thread)
+    public static class Client {
+        final String ip = "10.0." + ThreadLocalRandom.current().nextInt(256) + "." + ThreadLocalRandom.current().nextInt(256);
+
+        final String user = "user" + ThreadLocalRandom.current().nextInt(1000000) + "@test.com";
+    }
+
+    @Benchmark
+    public long sharedBucket() {
+        return limiter.acquire("GET", "/api/session", "10.0.0.1", "yoga@studio.com");
+    }
+
+    @Benchmark
+    public long ownBuckets(Client client) {
+        return limiter.acquire("GET", "/api/session", client.ip, client.user);
+    }
+
+    @Benchmark
+    public long disabled(Client client) {
+        return disabled.acquire("GET", "/api/session", client.ip, client.user);
+    }
+}
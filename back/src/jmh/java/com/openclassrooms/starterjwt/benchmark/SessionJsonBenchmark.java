@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+
+/**
+ * Serialization of a List&lt;SessionDto&gt; response body with the ObjectMapper defaults
+ * Spring MVC uses, through a fresh writer per call and through a writer resolved once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionJsonBenchmark {
+    @Param({"20", "100"})
+    private int sessions;
+
+    @Param({"0", "50"})
+    private int participants;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter listWriter;
+
+    private List<SessionDto> body;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, SessionDto.class));
+        body = LongStream.rangeClosed(1, sessions)
+                .mapToObj(id -> Fixtures.sessionDto(id, participants))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public byte[] typedWriter() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(body);
+    }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.SessionMapperImpl;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+
+/**
+ * SessionMapper in both directions for a session with 0, 50 and 500 participants.
+ *
+ * Participants are already loaded, so toDto does no lookup; toEntity resolves them with
+ * one UserService.findAllById call, as in the application, stubbed to return them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionMapperBenchmark {
+    @Param({"0", "50", "500"})
+    private int participants;
+
+    private SessionMapper mapper;
+
+    private Session session;
+
+    private SessionDto dto;
+
+    @Setup
+    public void setUp() {
+        List<User> users = Fixtures.users(participants);
+        UserService userService = new UserService(null, null) {
+            @Override
+            public List<User> findAllById(Collection<Long> ids) {
+                return users;
+            }
+        };
+        TeacherService teacherService = new TeacherService(null) {
+            @Override
+            public Teacher findById(Long id) {
+                return Fixtures.TEACHER;
+            }
+        };
+
+        mapper = new SessionMapperImpl();
+        ReflectionTestUtils.setField(mapper, "userService", userService);
+        ReflectionTestUtils.setField(mapper, "teacherService", teacherService);
+        session = Fixtures.session(1L, users);
+        dto = Fixtures.sessionDto(1L, participants);
+    }
+
+    @Benchmark
+    public SessionDto toDto() {
+        return mapper.toDto(session);
+    }
+
+    @Benchmark
+    public Session toEntity() {
+        return mapper.toEntity(dto);
+    }
+}
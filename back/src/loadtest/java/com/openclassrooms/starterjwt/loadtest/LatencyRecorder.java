@@ -0,0 +1,94 @@
+package com.openclassrooms.starterjwt.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Response times and failures per endpoint, recorded by a single virtual user and merged
+ * once the run is over, so recording needs no synchronization and percentiles are exact.
+ */
+final class LatencyRecorder {
+    private final Map<String, Samples> samples = new TreeMap<>();
+
+    void record(String endpoint, long nanos, boolean failed) {
+        this.samples.computeIfAbsent(endpoint, k -> new Samples()).add(nanos, failed);
+    }
+
+    static LatencyRecorder merge(List<LatencyRecorder> recorders) {
+        LatencyRecorder merged = new LatencyRecorder();
+        for (LatencyRecorder recorder : recorders) {
+            recorder.samples.forEach((endpoint, samples) -> merged.samples.computeIfAbsent(endpoint, k -> new Samples()).addAll(samples));
+        }
+        return merged;
+    }
+
+    /**
+     * One row per endpoint plus a {@code total} row, with latencies in milliseconds.
+     */
+    List<Map<String, Object>> report(double seconds) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Samples total = new Samples();
+        this.samples.forEach((endpoint, samples) -> {
+            rows.add(samples.summarize(endpoint, seconds));
+            total.addAll(samples);
+        });
+        rows.add(total.summarize("total", seconds));
+        return rows;
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+
+        private int count;
+
+        private int failures;
+
+        void add(long value, boolean failed) {
+            if (this.count == this.nanos.length) {
+                this.nanos = Arrays.copyOf(this.nanos, this.count * 2);
+            }
+            this.nanos[this.count++] = value;
+            if (failed) {
+                this.failures++;
+            }
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.nanos[i], false);
+            }
+            this.failures += other.failures;
+        }
+
+        Map<String, Object> summarize(String endpoint, double seconds) {
+            long[] sorted = Arrays.copyOf(this.nanos, this.count);
+            Arrays.sort(sorted);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", endpoint);
+            row.put("requests", this.count);
+            row.put("failures", this.failures);
+            row.put("throughput", round(this.count / seconds));
+            row.put("p50", percentile(sorted, 0.5));
+            row.put("p99", percentile(sorted, 0.99));
+            row.put("p999", percentile(sorted, 0.999));
+            row.put("max", sorted.length == 0 ? 0 : round(sorted[sorted.length - 1] / 1e6));
+            return row;
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return round(sorted[Math.max(0, rank - 1)] / 1e6);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 1000) / 1000.0;
+        }
+    }
+}
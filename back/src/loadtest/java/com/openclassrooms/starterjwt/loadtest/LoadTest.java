@@ -0,0 +1,339 @@
+package com.openclassrooms.starterjwt.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.openclassrooms.starterjwt.SpringBootSecurityJwtApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Boots the application with the {@code loadtest} profile and replays the requests of the
+ * Postman collection from {@code loadtest.concurrency} virtual users for
+ * {@code loadtest.durationSeconds}, after {@code loadtest.warmupSeconds} of unrecorded
+ * warmup. Each virtual user logs in as one of the generated users, then loops over the
+ * flows of {@code loadtest.mix}, picked at random by weight:
+ * <ul>
+ *     <li>browse: session list, a session, teacher list, a teacher, its own user;</li>
+ *     <li>participate: joins a random session and leaves it again;</li>
+ *     <li>manage: creates, updates and deletes a session as the seeded admin;</li>
+ *     <li>signup: registers a new user, logs in and deletes the account.</li>
+ * </ul>
+ * A virtual user whose login fails counts it as a failed request and tries again after
+ * {@code loadtest.loginRetryMs}; a signup whose login fails skips deleting the account.
+ *
+ * Prints throughput and p50/p99/p999 latency per endpoint and writes them to
+ * {@code loadtest.results} as JSON.
+ *
+ * This is a closed model: each virtual user waits for a response before sending its next
+ * request, so a stall also delays the requests that would have arrived meanwhile and they
+ * are never measured. The percentiles therefore understate the tail that an open stream
+ * of clients would see (coordinated omission); the report says so.
+ */
+public final class LoadTest {
+    private static final String ADMIN_EMAIL = "yoga@studio.com";
+
+    private static final String MODEL_NOTE = "Closed model: latencies of requests delayed behind a slow response are not"
+            + " recorded (coordinated omission), so p99/p999 understate what an open stream of clients would see.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final PostmanCollection collection;
+
+    private final LoadTestDataGenerator data;
+
+    private final Map<String, Integer> mix;
+
+    private final long loginRetryMs = Long.getLong("loadtest.loginRetryMs", 100);
+
+    private final LongAdder loginFailures = new LongAdder();
+
+    private volatile boolean recording;
+
+    private volatile boolean running = true;
+
+    private String adminToken;
+
+    private LoadTest(int port, PostmanCollection collection, LoadTestDataGenerator data, Map<String, Integer> mix) {
+        this.baseUrl = "http://localhost:" + port;
+        this.collection = collection;
+        this.data = data;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 10);
+        int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 60);
+        System.setProperty("http.maxConnections", String.valueOf(concurrency));
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class)
+                .profiles("loadtest")
+                .run(args)) {
+            PostmanCollection collection = PostmanCollection.read(
+                    new File(System.getProperty("loadtest.collection", "../ressources/postman/yoga.postman_collection.json")), new ObjectMapper());
+            LoadTest loadTest = new LoadTest(context.getEnvironment().getRequiredProperty("local.server.port", Integer.class),
+                    collection, context.getBean(LoadTestDataGenerator.class),
+                    parseMix(System.getProperty("loadtest.mix", "browse:70,participate:20,manage:5,signup:5")));
+
+            List<Map<String, Object>> report = loadTest.run(concurrency, warmupSeconds, durationSeconds);
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("concurrency", concurrency);
+            results.put("durationSeconds", durationSeconds);
+            results.put("users", loadTest.data.getUserIds().size());
+            results.put("sessions", loadTest.data.getSessionIds().size());
+            results.put("mix", loadTest.mix);
+            results.put("model", "closed");
+            results.put("note", MODEL_NOTE);
+            results.put("loginFailures", loadTest.loginFailures.sum());
+            results.put("latencyUnit", "ms");
+            results.put("endpoints", report);
+            File output = new File(System.getProperty("loadtest.results", "target/loadtest-results.json"));
+            loadTest.objectMapper.writerWithDefaultPrettyPrinter().writeValue(output, results);
+
+            System.out.println(format(report));
+            System.out.println(loadTest.loginFailures.sum() + " failed logins, retried after " + loadTest.loginRetryMs + " ms");
+            System.out.println(MODEL_NOTE);
+            System.out.println("Results written to " + output.getAbsolutePath());
+        }
+    }
+
+    private List<Map<String, Object>> run(int concurrency, int warmupSeconds, int durationSeconds) throws Exception {
+        Session admin = login(ADMIN_EMAIL, new LatencyRecorder());
+        if (admin == null) {
+            throw new IllegalStateException("Login of " + ADMIN_EMAIL + " failed");
+        }
+        this.adminToken = admin.token;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<LatencyRecorder>> users = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            users.add(executor.submit(this::virtualUser));
+        }
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        this.recording = true;
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        this.recording = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        this.running = false;
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        for (Future<LatencyRecorder> user : users) {
+            recorders.add(user.get());
+        }
+        executor.shutdown();
+        return LatencyRecorder.merge(recorders).report(seconds);
+    }
+
+    private LatencyRecorder virtualUser() throws IOException, InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        List<Long> userIds = this.data.getUserIds();
+        int index = ThreadLocalRandom.current().nextInt(userIds.size());
+        Session session = login(LoadTestDataGenerator.email(index + 1), recorder);
+        while (session == null && this.running) {
+            TimeUnit.MILLISECONDS.sleep(this.loginRetryMs);
+            session = login(LoadTestDataGenerator.email(index + 1), recorder);
+        }
+
+        while (this.running) {
+            switch (pickFlow()) {
+                case "participate":
+                    participate(session, recorder);
+                    break;
+                case "manage":
+                    manage(recorder);
+                    break;
+                case "signup":
+                    signup(recorder);
+                    break;
+                default:
+                    browse(session, recorder);
+            }
+        }
+        return recorder;
+    }
+
+    private void browse(Session session, LatencyRecorder recorder) throws IOException {
+        send(this.collection.get("GET", "/api/session"), Collections.emptyMap(), null, session.token, recorder);
+        send(this.collection.get("GET", "/api/session/:id"), Collections.singletonMap("id", randomOf(this.data.getSessionIds())), null, session.token, recorder);
+        send(this.collection.get("GET", "/api/teacher"), Collections.emptyMap(), null, session.token, recorder);
+        send(this.collection.get("GET", "/api/teacher/:id"), Collections.singletonMap("id", randomOf(this.data.getTeacherIds())), null, session.token, recorder);
+        send(this.collection.get("GET", "/api/user/:id"), Collections.singletonMap("id", session.userId), null, session.token, recorder);
+    }
+
+    private void participate(Session session, LatencyRecorder recorder) throws IOException {
+        Map<String, Object> variables = new LinkedHashMap<>();
+        variables.put("id", randomOf(this.data.getSessionIds()));
+        variables.put("userId", session.userId);
+        if (send(this.collection.get("POST", "/api/session/:id/participate/:userId"), variables, null, session.token, recorder).ok()) {
+            send(this.collection.get("DELETE", "/api/session/:id/participate/:userId"), variables, null, session.token, recorder);
+        }
+    }
+
+    private void manage(LatencyRecorder recorder) throws IOException {
+        PostmanCollection.Request create = this.collection.get("POST", "/api/session");
+        ObjectNode body = create.body();
+        body.put("name", "Load " + ThreadLocalRandom.current().nextInt(1000000));
+        body.put("teacher_id", randomOf(this.data.getTeacherIds()));
+        Response created = send(create, Collections.emptyMap(), body, this.adminToken, recorder);
+        if (!created.ok()) {
+            return;
+        }
+
+        Map<String, Object> id = Collections.singletonMap("id", created.json.path("id").asLong());
+        PostmanCollection.Request update = this.collection.get("PUT", "/api/session/:id");
+        ObjectNode changes = update.body();
+        changes.put("teacher_id", randomOf(this.data.getTeacherIds()));
+        send(update, id, changes, this.adminToken, recorder);
+        send(this.collection.get("DELETE", "/api/session/:id"), id, null, this.adminToken, recorder);
+    }
+
+    private void signup(LatencyRecorder recorder) throws IOException {
+        PostmanCollection.Request register = this.collection.get("POST", "/api/auth/register");
+        ObjectNode body = register.body();
+        String email = "signup-" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + "@test.com";
+        body.put("email", email);
+        body.put("password", LoadTestDataGenerator.PASSWORD);
+        if (!send(register, Collections.emptyMap(), body, null, recorder).ok()) {
+            return;
+        }
+
+        Session session = login(email, recorder);
+        if (session != null) {
+            send(this.collection.get("DELETE", "/api/user/:id"), Collections.singletonMap("id", session.userId), null, session.token, recorder);
+        }
+    }
+
+    /**
+     * Returns the session of the user, or null when the login failed, which the recorder
+     * has already counted.
+     */
+    private Session login(String email, LatencyRecorder recorder) throws IOException {
+        PostmanCollection.Request login = this.collection.get("POST", "/api/auth/login");
+        ObjectNode body = login.body();
+        body.put("email", email);
+        body.put("password", LoadTestDataGenerator.PASSWORD);
+        Response response = send(login, Collections.emptyMap(), body, null, recorder);
+        if (!response.ok()) {
+            this.loginFailures.increment();
+            return null;
+        }
+        return new Session(response.json.path("token").asText(), response.json.path("id").asLong());
+    }
+
+    private Response send(PostmanCollection.Request request, Map<String, ?> variables, JsonNode body, String token,
+                          LatencyRecorder recorder) throws IOException {
+        byte[] payload = body == null ? null : this.objectMapper.writeValueAsBytes(body);
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl + request.expand(variables)).openConnection();
+        connection.setRequestMethod(request.getMethod());
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (payload != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(payload);
+            }
+        }
+
+        int status = connection.getResponseCode();
+        byte[] content;
+        try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            content = in == null ? new byte[0] : StreamUtils.copyToByteArray(in);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (this.recording) {
+            recorder.record(request.getName(), elapsed, status >= 400);
+        }
+        boolean json = content.length > 0 && String.valueOf(connection.getContentType()).contains("json");
+        return new Response(status, json ? this.objectMapper.readTree(content) : this.objectMapper.nullNode());
+    }
+
+    private String pickFlow() {
+        int total = this.mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<String, Integer> flow : this.mix.entrySet()) {
+            pick -= flow.getValue();
+            if (pick < 0) {
+                return flow.getKey();
+            }
+        }
+        return "browse";
+    }
+
+    private static Long randomOf(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String flow : mix.split(",")) {
+            String[] parts = flow.trim().split(":");
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+
+    private static String format(List<Map<String, Object>> report) {
+        StringBuilder table = new StringBuilder(String.format("%n%-45s %9s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "failed", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map<String, Object> row : report) {
+            table.append(String.format("%-45s %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", row.get("endpoint"), row.get("requests"),
+                    row.get("failures"), row.get("throughput"), row.get("p50"), row.get("p99"), row.get("p999"), row.get("max")));
+        }
+        return table.toString();
+    }
+
+    private static final class Session {
+        private final String token;
+
+        private final long userId;
+
+        private Session(String token, long userId) {
+            this.token = token;
+            this.userId = userId;
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+
+        private final JsonNode json;
+
+        private Response(int status, JsonNode json) {
+            this.status = status;
+            this.json = json;
+        }
+
+        boolean ok() {
+            return this.status < 400;
+        }
+    }
+}
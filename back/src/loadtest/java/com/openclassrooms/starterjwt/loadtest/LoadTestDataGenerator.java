@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.loadtest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Adds {@code loadtest.teachers} teachers, {@code loadtest.users} users and
+ * {@code loadtest.sessions} sessions on top of the seed script, spread over the three
+ * months around today.
+ *
+ * Each session gets a Poisson-distributed number of participants averaging
+ * {@code loadtest.participantsPerSession}, and room for as many again, so the
+ * participate flow mostly succeeds. Runs before the application is ready, so the
+ * session catalog and search index load the generated data.
+ */
+@Component
+@Profile("loadtest")
+public class LoadTestDataGenerator implements ApplicationRunner {
+    static final String PASSWORD = "test!1234";
+
+    private static final String PASSWORD_HASH = "$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int teachers;
+
+    private final int users;
+
+    private final int sessions;
+
+    private final int participantsPerSession;
+
+    private final Random random = new Random(42);
+
+    private List<Long> userIds = Collections.emptyList();
+
+    private List<Long> sessionIds = Collections.emptyList();
+
+    private List<Long> teacherIds = Collections.emptyList();
+
+    public LoadTestDataGenerator(JdbcTemplate jdbcTemplate,
+                                 @Value("${loadtest.teachers:20}") int teachers,
+                                 @Value("${loadtest.users:2000}") int users,
+                                 @Value("${loadtest.sessions:500}") int sessions,
+                                 @Value("${loadtest.participantsPerSession:15}") int participantsPerSession) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.teachers = teachers;
+        this.users = users;
+        this.sessions = sessions;
+        this.participantsPerSession = participantsPerSession;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        batch("insert into TEACHERS (first_name, last_name) values (?, ?)", IntStream.rangeClosed(1, this.teachers)
+                .mapToObj(i -> new Object[]{"Teacher" + i, "LOAD" + i}));
+        this.teacherIds = this.jdbcTemplate.queryForList("select id from TEACHERS order by id", Long.class);
+
+        batch("insert into USERS (first_name, last_name, admin, email, password) values (?, ?, false, ?, ?)", IntStream.rangeClosed(1, this.users)
+                .mapToObj(i -> new Object[]{"First" + i, "Last" + i, email(i), PASSWORD_HASH}));
+        this.userIds = this.jdbcTemplate.queryForList("select id from USERS where email like 'load%@test.com' order by id", Long.class);
+
+        long start = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(45);
+        List<int[]> sizes = new ArrayList<>(this.sessions);
+        for (int i = 1; i <= this.sessions; i++) {
+            int participants = Math.min(poisson(this.participantsPerSession), this.userIds.size());
+            sizes.add(new int[]{participants, Math.max(1, 2 * Math.max(participants, this.participantsPerSession))});
+        }
+        batch("insert into SESSIONS (name, description, capacity, date, teacher_id) values (?, ?, ?, ?, ?)", IntStream.range(0, this.sessions)
+                .mapToObj(i -> new Object[]{"Session " + (i + 1), "Yoga session " + (i + 1) + " for every level, mats provided.", sizes.get(i)[1],
+                        new Timestamp(start + random.nextInt(90 * 24) * TimeUnit.HOURS.toMillis(1)),
+                        this.teacherIds.get(i % this.teacherIds.size())}));
+        this.sessionIds = this.jdbcTemplate.queryForList("select id from SESSIONS order by id", Long.class);
+
+        List<Object[]> participations = new ArrayList<>();
+        for (int i = 0; i < this.sessionIds.size(); i++) {
+            Long sessionId = this.sessionIds.get(i);
+            random.ints(0, this.userIds.size()).distinct().limit(sizes.get(i)[0])
+                    .forEach(user -> participations.add(new Object[]{sessionId, this.userIds.get(user)}));
+        }
+        batch("insert into PARTICIPATE (session_id, user_id) values (?, ?)", participations.stream());
+    }
+
+    static String email(int i) {
+        return "load" + i + "@test.com";
+    }
+
+    public List<Long> getUserIds() {
+        return this.userIds;
+    }
+
+    public List<Long> getSessionIds() {
+        return this.sessionIds;
+    }
+
+    public List<Long> getTeacherIds() {
+        return this.teacherIds;
+    }
+
+    private void batch(String sql, Stream<Object[]> rows) {
+        List<Object[]> all = rows.collect(Collectors.toList());
+        for (int from = 0; from < all.size(); from += BATCH_SIZE) {
+            this.jdbcTemplate.batchUpdate(sql, all.subList(from, Math.min(all.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Requests of a Postman v2.1 collection, keyed by method and path template such as
+ * {@code POST /api/session/:id/participate/:userId}.
+ */
+final class PostmanCollection {
+    private final Map<String, Request> requests = new LinkedHashMap<>();
+
+    private PostmanCollection() {
+    }
+
+    static PostmanCollection read(File file, ObjectMapper objectMapper) throws IOException {
+        PostmanCollection collection = new PostmanCollection();
+        collection.addAll(objectMapper.readTree(file).path("item"), objectMapper);
+        return collection;
+    }
+
+    Request get(String method, String path) {
+        Request request = this.requests.get(method + " " + path);
+        if (request == null) {
+            throw new IllegalArgumentException("No '" + method + " " + path + "' request in the collection, found " + this.requests.keySet());
+        }
+        return request;
+    }
+
+    private void addAll(JsonNode items, ObjectMapper objectMapper) throws IOException {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                addAll(item.get("item"), objectMapper);
+                continue;
+            }
+
+            JsonNode request = item.path("request");
+            StringJoiner path = new StringJoiner("/", "/", "");
+            request.path("url").path("path").forEach(segment -> path.add(segment.asText()));
+            String raw = request.path("body").path("raw").asText("");
+            ObjectNode body = raw.trim().isEmpty() ? null : (ObjectNode) objectMapper.readTree(raw);
+            Request parsed = new Request(request.path("method").asText(), path.toString(), body);
+            this.requests.put(parsed.getName(), parsed);
+        }
+    }
+
+    static final class Request {
+        private final String method;
+
+        private final String path;
+
+        private final ObjectNode body;
+
+        private Request(String method, String path, ObjectNode body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        String getName() {
+            return this.method + " " + this.path;
+        }
+
+        String getMethod() {
+            return this.method;
+        }
+
+        /**
+         * The path with each {@code :name} segment replaced by its value.
+         */
+        String expand(Map<String, ?> variables) {
+            String expanded = this.path;
+            for (Map.Entry<String, ?> variable : variables.entrySet()) {
+                expanded = expanded.replace(":" + variable.getKey(), String.valueOf(variable.getValue()));
+            }
+            return expanded;
+        }
+
+        /**
+         * A copy of the collection's body, for the caller to adjust.
+         */
+        ObjectNode body() {
+            return this.body == null ? null : this.body.deepCopy();
+        }
+    }
+}
@@ -1,15 +1,34 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.BulkParticipationRequest;
+import com.openclassrooms.starterjwt.payload.response.BulkParticipationResponse;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.services.ParticipationStatus;
+import com.openclassrooms.starterjwt.services.SessionCatalog;
+import com.openclassrooms.starterjwt.services.SessionSearchIndex;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -19,92 +38,163 @@ import java.util.List;
 public class SessionController {
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final SessionCatalog sessionCatalog;
+    private final SessionSearchIndex sessionSearchIndex;
+    private final ObjectMapper objectMapper;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             SessionCatalog sessionCatalog,
+                             SessionSearchIndex sessionSearchIndex,
+                             ObjectMapper objectMapper) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.sessionCatalog = sessionCatalog;
+        this.sessionSearchIndex = sessionSearchIndex;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
-        try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+    public ResponseEntity<?> findById(@PathVariable("id") Long id, WebRequest request) {
+        if (request.checkNotModified(this.sessionCatalog.getETag(id))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
 
-            if (session == null) {
-                return ResponseEntity.notFound().build();
-            }
+        SessionDto session = this.sessionCatalog.findById(id);
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
-        } catch (NumberFormatException e) {
-            return ResponseEntity.badRequest().build();
+        if (session == null) {
+            return ResponseEntity.notFound().build();
         }
+
+        return ResponseEntity.ok().body(session);
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(
+            @RequestParam(value = "unpaged", defaultValue = "false") boolean unpaged,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME, fallbackPatterns = "yyyy-MM-dd") Date from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME, fallbackPatterns = "yyyy-MM-dd") Date to,
+            @RequestParam(value = "teacher_id", required = false) Long teacherId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            WebRequest request) {
+        if (request.checkNotModified(this.sessionCatalog.getETag(unpaged, from, to, teacherId, cursor, size))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        if (unpaged) {
+            return ResponseEntity.ok().body(this.sessionCatalog.findAll());
+        }
+
+        SessionPageDto page = this.sessionCatalog.findPage(from, to, teacherId, cursor, size);
+
+        return ResponseEntity.ok().body(page);
+    }
+
+    @GetMapping("search")
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(value = "size", required = false) Integer size) {
+        List<Long> ids = this.sessionSearchIndex.search(query, this.sessionService.resolvePageSize(size));
+
+        return ResponseEntity.ok().body(this.sessionCatalog.findAllById(ids));
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean ndjson = "ndjson".equals(format)
+                || (format == null && accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE));
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                this.sessionService.exportAll(sessions -> {
+                    try {
+                        for (SessionDto session : this.sessionMapper.toDto(sessions)) {
+                            generator.writeObject(session);
+                            if (ndjson) {
+                                generator.writeRaw('\n');
+                            }
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @PostMapping()
     public ResponseEntity<?> create(@Valid @RequestBody SessionDto sessionDto) {
-        log.info(sessionDto);
-
         Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
 
-        log.info(session);
+        log.debug("Created session {}", session.getId());
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
     @PutMapping("{id}")
-    public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
-        try {
-            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
+    public ResponseEntity<?> update(@PathVariable("id") Long id, @Valid @RequestBody SessionDto sessionDto) {
+        Session session = this.sessionService.update(id, this.sessionMapper.toEntity(sessionDto));
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
-        } catch (NumberFormatException e) {
-            return ResponseEntity.badRequest().build();
-        }
+        return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<?> save(@PathVariable("id") String id) {
-        try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
-
-            if (session == null) {
-                return ResponseEntity.notFound().build();
-            }
-
-            this.sessionService.delete(Long.parseLong(id));
-            return ResponseEntity.ok().build();
-        } catch (NumberFormatException e) {
-            return ResponseEntity.badRequest().build();
+    public ResponseEntity<?> save(@PathVariable("id") Long id) {
+        if (this.sessionCatalog.findById(id) == null) {
+            return ResponseEntity.notFound().build();
         }
+
+        this.sessionService.delete(id);
+        return ResponseEntity.ok().build();
     }
 
     @PostMapping("{id}/participate/{userId}")
-    public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
-        try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+    public ResponseEntity<?> participate(@PathVariable("id") Long id, @PathVariable("userId") Long userId) {
+        ParticipationStatus status = this.sessionService.participate(id, userId);
+
+        if (status == ParticipationStatus.WAITLISTED) {
+            return ResponseEntity.accepted().body(new MessageResponse("Session is full, added to the waitlist"));
+        }
+
+        return ResponseEntity.ok().build();
+    }
 
-            return ResponseEntity.ok().build();
-        } catch (NumberFormatException e) {
+    @PostMapping("participate")
+    public ResponseEntity<?> participateAll(@Valid @RequestBody BulkParticipationRequest request) {
+        if (request.getSessionIds() == null) {
             return ResponseEntity.badRequest().build();
         }
+
+        return ResponseEntity.ok().body(new BulkParticipationResponse(
+                this.sessionService.participateAll(request.getSessionIds(), request.getUserIds())));
+    }
+
+    @PostMapping("{id}/participate")
+    public ResponseEntity<?> participateAll(@PathVariable("id") Long id, @Valid @RequestBody BulkParticipationRequest request) {
+        return ResponseEntity.ok().body(new BulkParticipationResponse(
+                this.sessionService.participateAll(Collections.singletonList(id), request.getUserIds())));
     }
 
     @DeleteMapping("{id}/participate/{userId}")
-    public ResponseEntity<?> noLongerParticipate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
-        try {
-            this.sessionService.noLongerParticipate(Long.parseLong(id), Long.parseLong(userId));
+    public ResponseEntity<?> noLongerParticipate(@PathVariable("id") Long id, @PathVariable("userId") Long userId) {
+        this.sessionService.noLongerParticipate(id, userId);
 
-            return ResponseEntity.ok().build();
-        } catch (NumberFormatException e) {
-            return ResponseEntity.badRequest().build();
-        }
+        return ResponseEntity.ok().build();
     }
 }
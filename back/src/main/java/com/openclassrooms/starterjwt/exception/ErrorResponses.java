@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.exception;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Error bodies rendered once at startup, {@code {"status":404,"error":"Not Found"}}, so
+ * answering an error allocates no map, mapper or JSON text.
+ */
+public final class ErrorResponses {
+  private static final Map<HttpStatus, byte[]> BODIES = new EnumMap<>(HttpStatus.class);
+
+  private static final HttpHeaders JSON_HEADERS;
+
+  static {
+    for (HttpStatus status : HttpStatus.values()) {
+      if (status.isError()) {
+        BODIES.put(status, ("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase() + "\"}")
+            .getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+  }
+
+  private ErrorResponses() {
+  }
+
+  public static byte[] body(HttpStatus status) {
+    return BODIES.get(status);
+  }
+
+  public static ResponseEntity<byte[]> of(HttpStatus status) {
+    return new ResponseEntity<>(BODIES.get(status), JSON_HEADERS, status);
+  }
+}
@@ -0,0 +1,44 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+/**
+ * Answers the application's exceptions, and malformed ids, parameters and bodies, with the
+ * static bodies of {@link ErrorResponses} instead of a forward to the error controller.
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+  @ExceptionHandler({
+      BadRequestException.class,
+      MethodArgumentTypeMismatchException.class,
+      MethodArgumentNotValidException.class,
+      MissingServletRequestParameterException.class,
+      HttpMessageNotReadableException.class
+  })
+  public ResponseEntity<byte[]> badRequest() {
+    return ErrorResponses.of(HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(UnauthorizedException.class)
+  public ResponseEntity<byte[]> unauthorized() {
+    return ErrorResponses.of(HttpStatus.UNAUTHORIZED);
+  }
+
+  @ExceptionHandler(NotFoundException.class)
+  public ResponseEntity<byte[]> notFound() {
+    return ErrorResponses.of(HttpStatus.NOT_FOUND);
+  }
+
+  @ExceptionHandler(ServiceUnavailableException.class)
+  public ResponseEntity<byte[]> serviceUnavailable() {
+    return ErrorResponses.of(HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
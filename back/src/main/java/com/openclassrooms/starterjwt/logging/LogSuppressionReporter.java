@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Every {@code oc.app.logging.summaryMs}, logs how many messages each
+ * {@link RateLimitedLogger} key suppressed without reporting them yet and, while
+ * {@code spring.jpa.show-sql} is off, how many SQL statements ran unechoed.
+ */
+@Component
+public class LogSuppressionReporter {
+    private static final Logger logger = LoggerFactory.getLogger(LogSuppressionReporter.class);
+
+    private final SqlStatementCounter sqlStatementCounter;
+
+    private final boolean showSql;
+
+    private long reportedSql;
+
+    public LogSuppressionReporter(SqlStatementCounter sqlStatementCounter,
+                                  @Value("${spring.jpa.show-sql:false}") boolean showSql) {
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.showSql = showSql;
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.logging.summaryMs}", initialDelayString = "${oc.app.logging.summaryMs}")
+    public synchronized void report() {
+        for (RateLimitedLogger.Budget budget : RateLimitedLogger.getBudgets()) {
+            long pending = budget.drainPending();
+            if (pending > 0) {
+                logger.info("Suppressed {} '{}' messages ({} in total)", pending, budget.getKey(), budget.getSuppressed());
+            }
+        }
+
+        long total = sqlStatementCounter.getTotal();
+        if (!showSql && total > reportedSql) {
+            logger.info("{} SQL statements not echoed (select={}, insert={}, update={}, delete={}, other={} in total)",
+                    total - reportedSql, sqlStatementCounter.getSelects(), sqlStatementCounter.getInserts(),
+                    sqlStatementCounter.getUpdates(), sqlStatementCounter.getDeletes(), sqlStatementCounter.getOthers());
+            reportedSql = total;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.starterjwt.logging;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger for messages that a client can trigger at will, such as invalid tokens.
+ *
+ * Each message key may log {@code permits} times per {@code window}; after that one
+ * message in {@code sampleEvery} still goes through, and the rest are only counted. The
+ * next message logged for the key says how many were suppressed before it, and
+ * {@link LogSuppressionReporter} summarizes keys that went quiet.
+ */
+public final class RateLimitedLogger {
+    static final int DEFAULT_PERMITS = 10;
+
+    static final long DEFAULT_WINDOW_MS = 10000;
+
+    static final int DEFAULT_SAMPLE_EVERY = 1000;
+
+    private static final Map<String, Budget> BUDGETS = new ConcurrentHashMap<>();
+
+    private enum Level { ERROR, WARN, INFO }
+
+    private final Logger logger;
+
+    private final int permits;
+
+    private final long windowNanos;
+
+    private final int sampleEvery;
+
+    RateLimitedLogger(Logger logger, int permits, long windowMs, int sampleEvery) {
+        this.logger = logger;
+        this.permits = permits;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.sampleEvery = sampleEvery;
+    }
+
+    public static RateLimitedLogger getLogger(Class<?> type) {
+        return new RateLimitedLogger(LoggerFactory.getLogger(type), DEFAULT_PERMITS, DEFAULT_WINDOW_MS, DEFAULT_SAMPLE_EVERY);
+    }
+
+    public void error(String key, String format, Object... arguments) {
+        if (logger.isErrorEnabled()) {
+            log(Level.ERROR, key, format, arguments);
+        }
+    }
+
+    public void warn(String key, String format, Object... arguments) {
+        if (logger.isWarnEnabled()) {
+            log(Level.WARN, key, format, arguments);
+        }
+    }
+
+    public void info(String key, String format, Object... arguments) {
+        if (logger.isInfoEnabled()) {
+            log(Level.INFO, key, format, arguments);
+        }
+    }
+
+    public boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
+    }
+
+    public void debug(String format, Object... arguments) {
+        logger.debug(format, arguments);
+    }
+
+    /**
+     * Messages suppressed so far, by {@code logger name:key}.
+     */
+    public static Collection<Budget> getBudgets() {
+        return Collections.unmodifiableCollection(BUDGETS.values());
+    }
+
+    private void log(Level level, String key, String format, Object[] arguments) {
+        Budget budget = BUDGETS.computeIfAbsent(logger.getName() + ":" + key, Budget::new);
+        long now = System.nanoTime();
+        if (!budget.acquire(now, permits, windowNanos)) {
+            long pending = budget.pending.incrementAndGet();
+            if (sampleEvery <= 0 || pending % sampleEvery != 0) {
+                budget.suppressed.increment();
+                return;
+            }
+            budget.pending.decrementAndGet();
+        }
+
+        long suppressed = budget.pending.getAndSet(0);
+        if (suppressed > 0) {
+            format = format + " ({} similar messages suppressed)";
+            arguments = Arrays.copyOf(arguments, arguments.length + 1);
+            arguments[arguments.length - 1] = suppressed;
+        }
+        switch (level) {
+            case ERROR:
+                logger.error(format, arguments);
+                break;
+            case WARN:
+                logger.warn(format, arguments);
+                break;
+            default:
+                logger.info(format, arguments);
+        }
+    }
+
+    public static final class Budget {
+        private final String key;
+
+        private final AtomicLong windowStart = new AtomicLong(Long.MIN_VALUE);
+
+        private final AtomicInteger used = new AtomicInteger();
+
+        private final AtomicLong pending = new AtomicLong();
+
+        private final LongAdder suppressed = new LongAdder();
+
+        private Budget(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSuppressed() {
+            return suppressed.sum();
+        }
+
+        long drainPending() {
+            return pending.getAndSet(0);
+        }
+
+        private boolean acquire(long now, int permits, long windowNanos) {
+            long start = windowStart.get();
+            if ((start == Long.MIN_VALUE || now - start >= windowNanos) && windowStart.compareAndSet(start, now)) {
+                used.set(0);
+            }
+            return used.incrementAndGet() <= permits;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.starterjwt.logging;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares, by kind, so they stay visible when
+ * {@code spring.jpa.show-sql} no longer echoes them.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+    private static final long serialVersionUID = 1L;
+
+    private final LongAdder selects = new LongAdder();
+
+    private final LongAdder inserts = new LongAdder();
+
+    private final LongAdder updates = new LongAdder();
+
+    private final LongAdder deletes = new LongAdder();
+
+    private final LongAdder others = new LongAdder();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        counter(sql).increment();
+        return sql;
+    }
+
+    public long getSelects() {
+        return selects.sum();
+    }
+
+    public long getInserts() {
+        return inserts.sum();
+    }
+
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    public long getDeletes() {
+        return deletes.sum();
+    }
+
+    public long getOthers() {
+        return others.sum();
+    }
+
+    public long getTotal() {
+        return getSelects() + getInserts() + getUpdates() + getDeletes() + getOthers();
+    }
+
+    private LongAdder counter(String sql) {
+        int start = 0;
+        while (start < sql.length() && !Character.isLetter(sql.charAt(start))) {
+            start++;
+        }
+        if (sql.regionMatches(true, start, "select", 0, 6) || sql.regionMatches(true, start, "with", 0, 4)) {
+            return selects;
+        }
+        if (sql.regionMatches(true, start, "insert", 0, 6)) {
+            return inserts;
+        }
+        if (sql.regionMatches(true, start, "update", 0, 6)) {
+            return updates;
+        }
+        if (sql.regionMatches(true, start, "delete", 0, 6)) {
+            return deletes;
+        }
+        return others;
+    }
+}
@@ -1,19 +1,29 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.Hibernate;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
+import org.mapstruct.Named;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,19 +34,83 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     TeacherService teacherService;
     @Autowired
     UserService userService;
+    @Autowired
+    SessionService sessionService;
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "users", expression = "java(resolveUsers(sessionDto.getUsers()))"),
     })
     public abstract Session toEntity(SessionDto sessionDto);
 
 
+    /**
+     * Loads every participant with one query, whatever the number of ids, and rejects
+     * ids that match no user instead of leaving holes in the list.
+     */
+    protected List<User> resolveUsers(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        if (ids.contains(null)) {
+            throw new BadRequestException();
+        }
+        Map<Long, User> users = this.userService.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (users.size() != ids.size()) {
+            throw new BadRequestException();
+        }
+        return ids.stream().map(users::get).collect(Collectors.toList());
+    }
+
+    @Named("withoutUsers")
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
+            @Mapping(target = "users", ignore = true),
     })
-    public abstract SessionDto toDto(Session session);
+    protected abstract SessionDto toDtoWithoutUsers(Session session);
+
+    @Override
+    public SessionDto toDto(Session session) {
+        if (session == null) {
+            return null;
+        }
+
+        return toDto(Collections.singletonList(session)).get(0);
+    }
+
+    /**
+     * Participants that are not loaded yet are fetched for the whole list with a
+     * single (session_id, user_id) projection instead of initializing each collection.
+     */
+    @Override
+    public List<SessionDto> toDto(List<Session> sessions) {
+        if (sessions == null) {
+            return null;
+        }
+
+        List<Long> lazySessionIds = sessions.stream()
+                .filter(session -> !Hibernate.isInitialized(session.getUsers()))
+                .map(Session::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<Long>> participants = lazySessionIds.isEmpty()
+                ? Collections.emptyMap()
+                : this.sessionService.findParticipantIds(lazySessionIds);
+
+        List<SessionDto> dtos = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            SessionDto dto = toDtoWithoutUsers(session);
+            if (Hibernate.isInitialized(session.getUsers())) {
+                dto.setUsers(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(User::getId).collect(Collectors.toList()));
+            } else {
+                dto.setUsers(participants.getOrDefault(session.getId(), new ArrayList<>()));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
 }
@@ -0,0 +1,121 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import com.openclassrooms.starterjwt.logging.RateLimitedLogger;
+import com.openclassrooms.starterjwt.logging.SqlStatementCounter;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.ratelimit.RateLimiter;
+import com.openclassrooms.starterjwt.security.services.BoundedPasswordEncoder;
+import com.openclassrooms.starterjwt.security.services.PrincipalCache;
+import com.openclassrooms.starterjwt.security.services.RehashingAuthenticationProvider;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
+import com.openclassrooms.starterjwt.services.SessionCatalog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters the caches, limiters and pools already keep as meters, so they
+ * are read at scrape time instead of being recorded twice.
+ *
+ * Not a {@code MeterBinder}: binders are resolved while the registry is being created,
+ * and several of these components are proxied by {@link ServiceMetricsAspect}, which
+ * needs that registry. The password encoder is optional because it can be replaced by
+ * another {@code PasswordEncoder}.
+ */
+@Component
+public class ApplicationMetrics {
+    private final JwtUtils jwtUtils;
+
+    private final PrincipalCache principalCache;
+
+    private final SessionCatalog sessionCatalog;
+
+    private final BoundedPasswordEncoder passwordEncoder;
+
+    private final RehashingAuthenticationProvider authenticationProvider;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final RateLimiter rateLimiter;
+
+    private final SqlStatementCounter sqlStatementCounter;
+
+    public ApplicationMetrics(MeterRegistry meterRegistry,
+                              JwtUtils jwtUtils,
+                              PrincipalCache principalCache,
+                              SessionCatalog sessionCatalog,
+                              ObjectProvider<BoundedPasswordEncoder> passwordEncoder,
+                              RehashingAuthenticationProvider authenticationProvider,
+                              TokenRevocationService tokenRevocationService,
+                              RateLimiter rateLimiter,
+                              SqlStatementCounter sqlStatementCounter) {
+        this.jwtUtils = jwtUtils;
+        this.principalCache = principalCache;
+        this.sessionCatalog = sessionCatalog;
+        this.passwordEncoder = passwordEncoder.getIfAvailable();
+        this.authenticationProvider = authenticationProvider;
+        this.tokenRevocationService = tokenRevocationService;
+        this.rateLimiter = rateLimiter;
+        this.sqlStatementCounter = sqlStatementCounter;
+        bindTo(meterRegistry);
+    }
+
+    private void bindTo(MeterRegistry registry) {
+        counter(registry, "jwt.cache", "result", "hit", this.jwtUtils, JwtUtils::getCacheHits);
+        counter(registry, "jwt.cache", "result", "miss", this.jwtUtils, JwtUtils::getCacheMisses);
+
+        counter(registry, "principal.cache", "result", "hit", this.principalCache, PrincipalCache::getHits);
+        counter(registry, "principal.cache", "result", "miss", this.principalCache, PrincipalCache::getMisses);
+        counter(registry, "principal.cache.evictions", null, null, this.principalCache, PrincipalCache::getEvictions);
+        Gauge.builder("principal.cache.size", this.principalCache, PrincipalCache::size).register(registry);
+
+        counter(registry, "session.catalog", "result", "hit", this.sessionCatalog, SessionCatalog::getHits);
+        counter(registry, "session.catalog", "result", "miss", this.sessionCatalog, SessionCatalog::getMisses);
+        counter(registry, "session.catalog.evictions", null, null, this.sessionCatalog, SessionCatalog::getEvictions);
+        Gauge.builder("session.catalog.size", this.sessionCatalog, SessionCatalog::size).register(registry);
+        Gauge.builder("session.catalog.complete", this.sessionCatalog, catalog -> catalog.isComplete() ? 1 : 0).register(registry);
+
+        if (this.passwordEncoder != null) {
+            FunctionTimer.builder("password.hashing", this.passwordEncoder,
+                            BoundedPasswordEncoder::getHashCount, BoundedPasswordEncoder::getHashTimeNanos, TimeUnit.NANOSECONDS)
+                    .register(registry);
+            Gauge.builder("password.hashing.max", this.passwordEncoder, encoder -> encoder.getMaxHashTimeNanos() / 1e9)
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("password.hashing.queue", this.passwordEncoder, BoundedPasswordEncoder::getQueueDepth).register(registry);
+            Gauge.builder("password.hashing.active", this.passwordEncoder, BoundedPasswordEncoder::getActiveCount).register(registry);
+            counter(registry, "password.hashing.rejected", null, null, this.passwordEncoder, BoundedPasswordEncoder::getRejected);
+        }
+        counter(registry, "password.rehashed", null, null, this.authenticationProvider, RehashingAuthenticationProvider::getRehashed);
+
+        counter(registry, "token.revocation.filter.hits", null, null, this.tokenRevocationService, TokenRevocationService::getFilterHits);
+        counter(registry, "token.revocation.false.positives", null, null, this.tokenRevocationService, TokenRevocationService::getFalsePositives);
+
+        counter(registry, "rate.limit.rejected", null, null, this.rateLimiter, RateLimiter::getRejected);
+        Gauge.builder("rate.limit.buckets", this.rateLimiter, RateLimiter::size).register(registry);
+
+        counter(registry, "sql.statements", "kind", "select", this.sqlStatementCounter, SqlStatementCounter::getSelects);
+        counter(registry, "sql.statements", "kind", "insert", this.sqlStatementCounter, SqlStatementCounter::getInserts);
+        counter(registry, "sql.statements", "kind", "update", this.sqlStatementCounter, SqlStatementCounter::getUpdates);
+        counter(registry, "sql.statements", "kind", "delete", this.sqlStatementCounter, SqlStatementCounter::getDeletes);
+        counter(registry, "sql.statements", "kind", "other", this.sqlStatementCounter, SqlStatementCounter::getOthers);
+
+        FunctionCounter.builder("logging.suppressed", RateLimitedLogger.class,
+                        type -> RateLimitedLogger.getBudgets().stream().mapToLong(RateLimitedLogger.Budget::getSuppressed).sum())
+                .register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String tag, String value, T source, ToDoubleFunction<T> count) {
+        FunctionCounter.Builder<T> builder = FunctionCounter.builder(name, source, count);
+        if (tag != null) {
+            builder.tag(tag, value);
+        }
+        builder.register(registry);
+    }
+}
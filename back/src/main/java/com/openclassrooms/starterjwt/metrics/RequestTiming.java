@@ -0,0 +1,174 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent in each phase of the request being handled on the current thread, read
+ * by {@link RequestTimingFilter} for the {@code Server-Timing} header and the slow
+ * request log.
+ *
+ * A phase still running when the header is written, typically {@code json} since the
+ * header has to precede the body, counts up to that point.
+ *
+ * Phases may overlap, e.g. the repository calls made while authenticating count in
+ * both {@code auth} and {@code db}, but a phase entered again while it is already
+ * running, such as a service calling another service, is only timed once. Code running
+ * outside a request, or on another thread, is not timed.
+ */
+public final class RequestTiming {
+    public enum Phase {
+        AUTH("auth"),
+        SERVICE("service"),
+        DB("db"),
+        MAPPER("mapper"),
+        JSON("json");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return this.metricName;
+        }
+    }
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long start = System.nanoTime();
+
+    private final boolean sampled;
+
+    private volatile boolean reported;
+
+    private final long[] nanos = new long[PHASES.length];
+
+    private final int[] calls = new int[PHASES.length];
+
+    private final int[] depth = new int[PHASES.length];
+
+    private final long[] startedAt = new long[PHASES.length];
+
+    RequestTiming(boolean sampled) {
+        this.sampled = sampled;
+    }
+
+    static RequestTiming bind(boolean sampled) {
+        RequestTiming timing = new RequestTiming(sampled);
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts timing {@code phase} for the current request, if any; every call must be
+     * followed by {@link #end(Phase)}.
+     */
+    public static void begin(Phase phase) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.enter(phase);
+        }
+    }
+
+    public static void end(Phase phase) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.exit(phase);
+        }
+    }
+
+    void enter(Phase phase) {
+        int index = phase.ordinal();
+        if (this.depth[index]++ == 0) {
+            this.startedAt[index] = System.nanoTime();
+        }
+    }
+
+    void exit(Phase phase) {
+        int index = phase.ordinal();
+        if (this.depth[index] > 0 && --this.depth[index] == 0) {
+            this.nanos[index] += System.nanoTime() - this.startedAt[index];
+            this.calls[index]++;
+        }
+    }
+
+    public boolean isSampled() {
+        return this.sampled;
+    }
+
+    /**
+     * Asks for the breakdown of this request in the {@code Server-Timing} header even if
+     * it is not sampled, e.g. because an admin made it. Called from within the filter
+     * chain, since the header may only be written after the chain has returned and the
+     * security context has been cleared.
+     */
+    public void report() {
+        this.reported = true;
+    }
+
+    public boolean isReported() {
+        return this.sampled || this.reported;
+    }
+
+    /**
+     * Time spent in {@code phase} so far, including the current call if it is running.
+     */
+    public long getNanos(Phase phase) {
+        int index = phase.ordinal();
+        long running = this.depth[index] > 0 ? System.nanoTime() - this.startedAt[index] : 0;
+        return this.nanos[index] + running;
+    }
+
+    public int getCalls(Phase phase) {
+        return this.calls[phase.ordinal()];
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - this.start;
+    }
+
+    /**
+     * The phases that ran, then the total so far, in {@code Server-Timing} syntax:
+     * {@code auth;dur=1.204, db;dur=3.518;desc="4 calls", total;dur=9.870}.
+     */
+    public String format() {
+        long elapsed = getElapsedNanos();
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            int count = this.calls[phase.ordinal()];
+            if (count > 0 || this.depth[phase.ordinal()] > 0) {
+                appendMetric(header, phase.getMetricName(), getNanos(phase));
+                if (count > 1) {
+                    header.append(";desc=\"").append(count).append(" calls\"");
+                }
+                header.append(", ");
+            }
+        }
+        appendMetric(header, "total", elapsed);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        header.append(name).append(";dur=").append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+}
@@ -0,0 +1,40 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.metrics.RequestTiming.Phase;
+
+/**
+ * Adds the time spent in services, repositories and mappers to the {@link RequestTiming}
+ * of the current request. Outside a request this is a thread-local lookup per call.
+ */
+@Aspect
+@Component
+public class RequestTimingAspect {
+    @Around("execution(public * com.openclassrooms.starterjwt.services.*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Phase.SERVICE, joinPoint);
+    }
+
+    @Around("execution(public * com.openclassrooms.starterjwt.repository.*Repository.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Phase.DB, joinPoint);
+    }
+
+    @Around("execution(public * com.openclassrooms.starterjwt.mapper.*Mapper.*(..))")
+    public Object timeMapper(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Phase.MAPPER, joinPoint);
+    }
+
+    private static Object time(Phase phase, ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTiming.begin(phase);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RequestTiming.end(phase);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import com.openclassrooms.starterjwt.logging.RateLimitedLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times every request by phase through {@link RequestTiming}, before the security filter
+ * chain so that authentication is included.
+ *
+ * Responses to admins, and to one request in {@code sampleEvery}, get the breakdown as a
+ * {@code Server-Timing} header, added just before the response is committed since the
+ * body is not buffered. Admin requests are flagged by {@code AuthTokenFilter} through
+ * {@link RequestTiming#report()}, as a response without a body is only committed once
+ * the security context is gone. Requests slower than {@code slowMs} are logged with the same
+ * breakdown once they complete, including asynchronous ones such as the export.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestTimingFilter extends OncePerRequestFilter {
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private static final RateLimitedLogger logger = RateLimitedLogger.getLogger(RequestTimingFilter.class);
+
+    private final int sampleEvery;
+
+    private final long slowNanos;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    public RequestTimingFilter(@Value("${oc.app.requestTiming.sampleEvery}") int sampleEvery,
+                               @Value("${oc.app.requestTiming.slowMs}") long slowMs) {
+        this.sampleEvery = sampleEvery;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean sampled = this.sampleEvery > 0 && this.requests.incrementAndGet() % this.sampleEvery == 0;
+        RequestTiming timing = RequestTiming.bind(sampled);
+        TimedResponse timedResponse = new TimedResponse(response, timing);
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            RequestTiming.unbind();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, timedResponse));
+            } else {
+                complete(request, timedResponse);
+            }
+        }
+    }
+
+    private void complete(HttpServletRequest request, TimedResponse response) {
+        response.writeTiming();
+        RequestTiming timing = response.timing;
+        long elapsed = timing.getElapsedNanos();
+        if (elapsed >= this.slowNanos) {
+            logger.warn("slow-request", "Slow request {} {} returned {} after {} ms: {}",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), timing.format());
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+
+        private final TimedResponse response;
+
+        CompletionListener(HttpServletRequest request, TimedResponse response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(this.request, this.response);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * Adds the {@code Server-Timing} header on the first write, flush or error, whichever
+     * commits the response.
+     */
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+        private final RequestTiming timing;
+
+        private boolean timingWritten;
+
+        private ServletOutputStream outputStream;
+
+        TimedResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void writeTiming() {
+            if (!this.timingWritten) {
+                this.timingWritten = true;
+                if (!isCommitted() && this.timing.isReported()) {
+                    setHeader(SERVER_TIMING, this.timing.format());
+                }
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (this.outputStream == null) {
+                this.outputStream = new TimedOutputStream(this, super.getOutputStream());
+            }
+            return this.outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeTiming();
+            super.sendRedirect(location);
+        }
+    }
+
+    private static final class TimedOutputStream extends ServletOutputStream {
+        private final TimedResponse response;
+
+        private final ServletOutputStream delegate;
+
+        TimedOutputStream(TimedResponse response, ServletOutputStream delegate) {
+            this.response = response;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.response.writeTiming();
+            this.delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.response.writeTiming();
+            this.delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.response.writeTiming();
+            this.delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.response.writeTiming();
+            this.delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return this.delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.metrics.RequestTiming.Phase;
+
+/**
+ * The JSON converter Spring Boot would otherwise create, timing response serialization
+ * as the {@code json} phase of the request.
+ */
+@Component
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        RequestTiming.begin(Phase.JSON);
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            RequestTiming.end(Phase.JSON);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+import lombok.experimental.Accessors;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * A token id that must no longer be accepted. Rows are only needed until the token itself
+ * would have expired.
+ */
+@Entity
+@Table(name = "REVOKED_TOKENS")
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"id"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class RevokedToken {
+    @Id
+    @Column(name = "token_id", length = 36)
+    private String id;
+
+    @NotNull
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @NotNull
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+}
@@ -0,0 +1,16 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkParticipationRequest {
+  private List<@NotNull Long> sessionIds;
+
+  @NotEmpty
+  private List<@NotNull Long> userIds;
+}
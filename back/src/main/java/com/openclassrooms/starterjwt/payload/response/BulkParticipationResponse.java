@@ -0,0 +1,14 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import java.util.List;
+
+import com.openclassrooms.starterjwt.services.ParticipationResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BulkParticipationResponse {
+  private List<ParticipationResult> results;
+}
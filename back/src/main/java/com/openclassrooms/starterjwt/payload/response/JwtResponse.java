@@ -1,5 +1,7 @@
 package com.openclassrooms.starterjwt.payload.response;
 
+import java.util.Date;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -8,6 +10,9 @@ import lombok.Setter;
 public class JwtResponse {
   private String token;
   private String type = "Bearer";
+  private Date tokenExpiresAt;
+  private String refreshToken;
+  private Date refreshTokenExpiresAt;
   private Long id;
   private String username;
   private String firstName;
@@ -1,9 +1,105 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    int STREAM_FETCH_SIZE = 500;
+
+    @Override
+    @EntityGraph(attributePaths = "teacher")
+    List<Session> findAll();
+
+    @EntityGraph(attributePaths = "teacher")
+    @Query("select s from Session s"
+            + " where (s.date > :afterDate or (s.date = :afterDate and s.id > :afterId))"
+            + " and s.date < :beforeDate"
+            + " and (:teacherId is null or s.teacher.id = :teacherId)"
+            + " order by s.date asc, s.id asc")
+    List<Session> findPage(@Param("afterDate") Date afterDate,
+                           @Param("afterId") Long afterId,
+                           @Param("beforeDate") Date beforeDate,
+                           @Param("teacherId") Long teacherId,
+                           Pageable pageable);
+
+    /**
+     * Rows are pulled from the driver {@value #STREAM_FETCH_SIZE} at a time; callers must
+     * consume the stream inside a transaction and close it.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select s from Session s left join fetch s.teacher order by s.id asc")
+    Stream<Session> streamAll();
+
+    /**
+     * Sessions whose name, description or teacher name contains {@code pattern}, a
+     * lower-case {@code like} pattern, in id order.
+     */
+    @EntityGraph(attributePaths = "teacher")
+    @Query("select s from Session s left join s.teacher t"
+            + " where lower(s.name) like :pattern or lower(s.description) like :pattern"
+            + " or lower(t.firstName) like :pattern or lower(t.lastName) like :pattern"
+            + " order by s.id asc")
+    List<Session> findMatching(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query("select max(s.updatedAt) as lastUpdated, count(s) as rowCount from Session s")
+    TableVersion findTableVersion();
+
+    @Query("select s.updatedAt from Session s where s.id = :id")
+    Optional<LocalDateTime> findUpdatedAt(@Param("id") Long id);
+
+    /**
+     * Participation rows are written natively, so the session's updated_at is bumped
+     * explicitly to keep its entity tag in step with its participants.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Session s set s.updatedAt = :now where s.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query(value = "select session_id as sessionId, user_id as userId from PARTICIPATE"
+            + " where session_id in (:sessionIds)", nativeQuery = true)
+    List<SessionParticipant> findParticipants(@Param("sessionIds") Collection<Long> sessionIds);
+
+    @Query(value = "select id as id, capacity as capacity from SESSIONS where id = :id for update", nativeQuery = true)
+    Optional<SessionSeats> lockSeats(@Param("id") Long id);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId", nativeQuery = true)
+    long countParticipants(@Param("sessionId") Long sessionId);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    long countParticipation(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into PARTICIPATE (session_id, user_id) values (:sessionId, :userId)", nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
 }
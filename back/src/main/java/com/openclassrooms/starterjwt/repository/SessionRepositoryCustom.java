@@ -0,0 +1,7 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.List;
+
+public interface SessionRepositoryCustom {
+    void addParticipants(Long sessionId, List<Long> userIds);
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class SessionRepositoryCustomImpl implements SessionRepositoryCustom {
+    static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addParticipants(Long sessionId, List<Long> userIds) {
+        this.jdbcTemplate.batchUpdate("insert into PARTICIPATE (session_id, user_id) values (?, ?)",
+                userIds, BATCH_SIZE, (statement, userId) -> {
+                    statement.setLong(1, sessionId);
+                    statement.setLong(2, userId);
+                });
+    }
+}
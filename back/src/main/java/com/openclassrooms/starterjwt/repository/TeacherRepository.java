@@ -2,8 +2,18 @@ package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+
 @Repository
 public interface TeacherRepository  extends JpaRepository<Teacher, Long> {
+    @Query("select max(t.updatedAt) as lastUpdated, count(t) as rowCount from Teacher t")
+    TableVersion findTableVersion();
+
+    @Query("select t.updatedAt from Teacher t where t.id = :id")
+    Optional<LocalDateTime> findUpdatedAt(@Param("id") Long id);
 }
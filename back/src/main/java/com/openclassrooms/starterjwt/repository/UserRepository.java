@@ -1,9 +1,16 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.openclassrooms.starterjwt.models.User;
 
@@ -12,4 +19,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  @Query("select u.id from User u where u.id in :ids")
+  List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  @Query("select u.updatedAt from User u where u.id = :id")
+  Optional<LocalDateTime> findUpdatedAt(@Param("id") Long id);
+
+  @Transactional
+  @Modifying
+  @Query("update User u set u.password = :password where u.email = :email and u.password = :previous")
+  int updatePassword(@Param("email") String email, @Param("previous") String previous, @Param("password") String password);
 }
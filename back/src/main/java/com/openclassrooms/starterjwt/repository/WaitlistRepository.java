@@ -0,0 +1,34 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long>, WaitlistRepositoryCustom {
+    boolean existsBySessionIdAndUserId(Long sessionId, Long userId);
+
+    long countBySessionId(Long sessionId);
+
+    Optional<WaitlistEntry> findFirstBySessionIdOrderByIdAsc(Long sessionId);
+
+    @Query("select w.userId from WaitlistEntry w where w.sessionId = :sessionId")
+    List<Long> findUserIds(@Param("sessionId") Long sessionId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId and w.userId = :userId")
+    int removeEntry(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId")
+    int removeAllEntries(@Param("sessionId") Long sessionId);
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class WaitlistRepositoryCustomImpl implements WaitlistRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    public WaitlistRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Rows are inserted in list order, so the generated ids keep the waitlist FIFO.
+     */
+    @Override
+    public void addEntries(Long sessionId, List<Long> userIds) {
+        this.jdbcTemplate.batchUpdate("insert into WAITLIST (session_id, user_id, created_at) values (?, ?, current_timestamp)",
+                userIds, SessionRepositoryCustomImpl.BATCH_SIZE, (statement, userId) -> {
+                    statement.setLong(1, sessionId);
+                    statement.setLong(2, userId);
+                });
+    }
+}
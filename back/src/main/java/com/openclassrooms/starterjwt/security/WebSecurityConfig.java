@@ -10,13 +10,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import com.openclassrooms.starterjwt.security.jwt.AuthEntryPointJwt;
 import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
-import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.security.ratelimit.RateLimitFilter;
+import com.openclassrooms.starterjwt.security.ratelimit.RateLimiter;
+import com.openclassrooms.starterjwt.security.services.RehashingAuthenticationProvider;
 
 @Configuration
 @EnableWebSecurity
@@ -26,10 +26,13 @@ import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
     prePostEnabled = true)
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   @Autowired
-  UserDetailsServiceImpl userDetailsService;
+  private AuthEntryPointJwt unauthorizedHandler;
 
   @Autowired
-  private AuthEntryPointJwt unauthorizedHandler;
+  private RehashingAuthenticationProvider authenticationProvider;
+
+  @Autowired
+  private RateLimiter rateLimiter;
 
   @Bean
   public AuthTokenFilter authenticationJwtTokenFilter() {
@@ -38,7 +41,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
   @Override
   public void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
-    authenticationManagerBuilder.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder());
+    authenticationManagerBuilder.authenticationProvider(authenticationProvider);
   }
 
   @Bean
@@ -47,20 +50,19 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     return super.authenticationManagerBean();
   }
 
-  @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
-  }
-
   @Override
   protected void configure(HttpSecurity http) throws Exception {
     http.cors().and().csrf().disable()
       .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
       .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
       .authorizeRequests().antMatchers("/api/auth/**").permitAll()
+      .antMatchers("/actuator/health").permitAll()
+      .antMatchers("/actuator/**").hasRole("ADMIN")
       .antMatchers("/api/**").authenticated()
       .anyRequest().authenticated();
 
     http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+    http.addFilterBefore(RateLimitFilter.perIp(rateLimiter), AuthTokenFilter.class);
+    http.addFilterAfter(RateLimitFilter.perUser(rateLimiter), AuthTokenFilter.class);
   }
 }
@@ -1,43 +1,68 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.openclassrooms.starterjwt.logging.RateLimitedLogger;
 
+/**
+ * Writes {@code {"status":401,"error":"Unauthorized","message":...,"path":...}} straight to
+ * the response. The part up to the path is rendered once per distinct message, which
+ * Spring Security keeps to a handful, so a 401 only encodes the path.
+ */
 @Component
 public class AuthEntryPointJwt implements AuthenticationEntryPoint {
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthEntryPointJwt.class);
+  private static final RateLimitedLogger logger = RateLimitedLogger.getLogger(AuthEntryPointJwt.class);
+
+  private static final int MAX_MESSAGES = 64;
+
+  private static final byte[] PATH_END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+  private final Map<String, byte[]> prefixes = new ConcurrentHashMap<>();
 
   @Override
   public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
       throws IOException, ServletException {
-    logger.error("Unauthorized error: {}", authException.getMessage());
+    logger.error("unauthorized", "Unauthorized error: {}", authException.getMessage());
 
     response.setContentType(MediaType.APPLICATION_JSON_VALUE);
     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
 
-    final Map<String, Object> body = new HashMap<>();
-    body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
-    body.put("error", "Unauthorized");
-    body.put("message", authException.getMessage());
-    body.put("path", request.getServletPath());
+    ServletOutputStream out = response.getOutputStream();
+    out.write(prefix(authException.getMessage()));
+    out.write(JsonStringEncoder.getInstance().quoteAsUTF8(request.getServletPath()));
+    out.write(PATH_END);
+  }
 
-    final ObjectMapper mapper = new ObjectMapper();
-    mapper.writeValue(response.getOutputStream(), body);
+  private byte[] prefix(String message) {
+    String key = String.valueOf(message);
+    byte[] prefix = prefixes.get(key);
+    if (prefix == null) {
+      prefix = render(message);
+      if (prefixes.size() < MAX_MESSAGES) {
+        prefixes.put(key, prefix);
+      }
+    }
+    return prefix;
   }
 
+  private static byte[] render(String message) {
+    String json = message == null ? "null" : "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(message)) + "\"";
+    return ("{\"status\":401,\"error\":\"Unauthorized\",\"message\":" + json + ",\"path\":\"")
+        .getBytes(StandardCharsets.UTF_8);
+  }
 }
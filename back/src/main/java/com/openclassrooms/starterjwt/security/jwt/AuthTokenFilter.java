@@ -7,18 +7,22 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.logging.RateLimitedLogger;
+import com.openclassrooms.starterjwt.metrics.RequestTiming;
+import com.openclassrooms.starterjwt.metrics.RequestTiming.Phase;
+import com.openclassrooms.starterjwt.security.services.PrincipalCache;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
@@ -26,17 +30,26 @@ public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
+  @Autowired
+  private PrincipalCache principalCache;
+
+  @Autowired
+  private TokenRevocationService tokenRevocationService;
+
+  private static final RateLimitedLogger logger = RateLimitedLogger.getLogger(AuthTokenFilter.class);
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
+    RequestTiming.begin(Phase.AUTH);
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      Claims claims = jwt != null ? jwtUtils.parseJwtToken(jwt) : null;
+      if (claims != null && !tokenRevocationService.isTokenRevoked(claims)) {
+        UserDetailsImpl userDetails = jwtUtils.isStateless() ? jwtUtils.getPrincipal(claims) : null;
+        if (userDetails == null) {
+          userDetails = principalCache.get(claims.getSubject(), userDetailsService::loadUserByUsername);
+        }
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -45,21 +58,24 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null && Boolean.TRUE.equals(userDetails.getAdmin())) {
+          timing.report();
+        }
       }
     } catch (Exception e) {
-      logger.error("Cannot set user authentication: {}", e);
+      logger.error("authentication", "Cannot set user authentication: {}", e.toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug("Cannot set user authentication", e);
+      }
+    } finally {
+      RequestTiming.end(Phase.AUTH);
     }
 
     filterChain.doFilter(request, response);
   }
 
   private String parseJwt(HttpServletRequest request) {
-    String headerAuth = request.getHeader("Authorization");
-
-    if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
-      return headerAuth.substring(7, headerAuth.length());
-    }
-
-    return null;
+    return JwtUtils.parseBearerToken(request.getHeader("Authorization"));
   }
 }
@@ -1,20 +1,51 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import com.openclassrooms.starterjwt.logging.RateLimitedLogger;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
-  private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
+  private static final RateLimitedLogger logger = RateLimitedLogger.getLogger(JwtUtils.class);
+
+  static final String CLAIM_ID = "id";
+
+  static final String CLAIM_FIRST_NAME = "firstName";
+
+  static final String CLAIM_LAST_NAME = "lastName";
+
+  static final String CLAIM_ADMIN = "admin";
+
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
 
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
@@ -22,38 +53,250 @@ public class JwtUtils {
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  @Value("${oc.app.jwtStateless}")
+  private boolean stateless;
+
+  @Value("${oc.app.jwtStatelessExpirationMs}")
+  private int statelessExpirationMs;
+
+  @Value("${oc.app.jwtCache.maxEntries}")
+  private int verifiedCacheMaxEntries;
+
+  private Key signingKey;
+
+  private final ConcurrentHashMap<ByteBuffer, Verified> verified = new ConcurrentHashMap<>();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /** Guarded by evictionLock. */
+  private Iterator<Map.Entry<ByteBuffer, Verified>> clockHand;
+
+  private final LongAdder cacheHits = new LongAdder();
+
+  private final LongAdder cacheMisses = new LongAdder();
+
+  /**
+   * Decodes the secret the same way jjwt does for {@code signWith(alg, String)}, once,
+   * instead of on every signature.
+   */
+  @PostConstruct
+  public void init() {
+    signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+  }
+
+  /**
+   * In stateless mode the token also carries the principal's id, names and admin flag and
+   * lives for {@code oc.app.jwtStatelessExpirationMs} only, since it is trusted without
+   * looking the user up again.
+   */
   public String generateJwtToken(Authentication authentication) {
 
     UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
-    return Jwts.builder()
+    JwtBuilder builder = Jwts.builder()
+        .setId(UUID.randomUUID().toString())
         .setSubject((userPrincipal.getUsername()))
-        .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
+        .setIssuedAt(new Date());
+    if (stateless) {
+      builder.claim(CLAIM_ID, userPrincipal.getId())
+          .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+          .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+          .claim(CLAIM_ADMIN, Boolean.TRUE.equals(userPrincipal.getAdmin()));
+    }
+
+    return builder
+        .setExpiration(new Date((new Date()).getTime() + (stateless ? statelessExpirationMs : jwtExpirationMs)))
+        .signWith(SignatureAlgorithm.HS512, signingKey)
         .compact();
   }
 
+  /**
+   * Returns the token of an {@code Authorization: Bearer} header value, or null.
+   */
+  public static String parseBearerToken(String headerAuth) {
+    if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+      return headerAuth.substring(7);
+    }
+
+    return null;
+  }
+
+  public boolean isStateless() {
+    return stateless;
+  }
+
+  /**
+   * Lifetime of the longest-lived tokens, in either mode.
+   */
+  public long getMaxExpirationMs() {
+    return Math.max(jwtExpirationMs, statelessExpirationMs);
+  }
+
+  /**
+   * Verifies the token once and returns its claims, or null when it is not valid.
+   *
+   * Tokens verified earlier are answered from a cache keyed by their SHA-256 digest until
+   * they expire, which skips both the JSON parsing and the HMAC. The cache holds at most
+   * {@code oc.app.jwtCache.maxEntries} tokens; 0 turns it off. A hit takes no lock, it
+   * only marks the token as used; once the cache is full, each new token evicts one that
+   * has not been used since the previous eviction pass went by (CLOCK).
+   */
+  public Claims parseJwtToken(String token) {
+    if (token == null || token.isEmpty()) {
+      logger.error("empty", "JWT claims string is empty");
+      return null;
+    }
+    if (verifiedCacheMaxEntries <= 0) {
+      return verify(token);
+    }
+
+    ByteBuffer digest = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    long now = System.currentTimeMillis();
+    Verified cached = verified.get(digest);
+    if (cached != null) {
+      if (isUnexpired(cached.claims, now)) {
+        cached.use();
+        cacheHits.increment();
+        return cached.claims;
+      }
+      verified.remove(digest, cached);
+    }
+
+    cacheMisses.increment();
+    Claims claims = verify(token);
+    if (claims != null && claims.getExpiration() != null) {
+      verified.put(digest, new Verified(claims));
+      if (verified.size() > verifiedCacheMaxEntries) {
+        evict(digest, now);
+      }
+    }
+    return claims;
+  }
+
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    Claims claims = parseJwtToken(token);
+    return claims == null ? null : claims.getSubject();
+  }
+
+  public Date getExpirationFromJwtToken(String token) {
+    Claims claims = parseJwtToken(token);
+    return claims == null ? null : claims.getExpiration();
   }
 
   public boolean validateJwtToken(String authToken) {
+    return parseJwtToken(authToken) != null;
+  }
+
+  /**
+   * Rebuilds the principal from stateless claims, or returns null when the token does not
+   * carry them.
+   */
+  public UserDetailsImpl getPrincipal(Claims claims) {
+    Object id = claims.get(CLAIM_ID);
+    if (!(id instanceof Number)) {
+      return null;
+    }
+
+    return UserDetailsImpl
+        .builder()
+        .id(((Number) id).longValue())
+        .username(claims.getSubject())
+        .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+        .lastName(claims.get(CLAIM_LAST_NAME, String.class))
+        .admin(Boolean.TRUE.equals(claims.get(CLAIM_ADMIN, Boolean.class)))
+        .build();
+  }
+
+  public UserDetailsImpl getPrincipalFromJwtToken(String token) {
+    Claims claims = parseJwtToken(token);
+    return claims == null ? null : getPrincipal(claims);
+  }
+
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.sum();
+  }
+
+  int getCacheSize() {
+    return verified.size();
+  }
+
+  private Claims verify(String token) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      return Jwts.parser().setSigningKey(signingKey).parseClaimsJws(token).getBody();
     } catch (SignatureException e) {
-      logger.error("Invalid JWT signature: {}", e.getMessage());
+      logger.error("signature", "Invalid JWT signature: {}", e.getMessage());
     } catch (MalformedJwtException e) {
-      logger.error("Invalid JWT token: {}", e.getMessage());
+      logger.error("malformed", "Invalid JWT token: {}", e.getMessage());
     } catch (ExpiredJwtException e) {
-      logger.error("JWT token is expired: {}", e.getMessage());
+      logger.error("expired", "JWT token is expired: {}", e.getMessage());
     } catch (UnsupportedJwtException e) {
-      logger.error("JWT token is unsupported: {}", e.getMessage());
+      logger.error("unsupported", "JWT token is unsupported: {}", e.getMessage());
     } catch (IllegalArgumentException e) {
-      logger.error("JWT claims string is empty: {}", e.getMessage());
+      logger.error("empty", "JWT claims string is empty: {}", e.getMessage());
     }
 
-    return false;
+    return null;
+  }
+
+  /**
+   * Advances the clock hand over the cache until it is back within bounds, giving tokens
+   * used since the last pass a second chance and removing the others, or any that expired.
+   * The token just cached is skipped so that it gets a chance to be used.
+   */
+  private void evict(ByteBuffer added, long now) {
+    evictionLock.lock();
+    try {
+      while (verified.size() > verifiedCacheMaxEntries) {
+        if (clockHand == null || !clockHand.hasNext()) {
+          clockHand = verified.entrySet().iterator();
+          if (!clockHand.hasNext()) {
+            return;
+          }
+        }
+        Map.Entry<ByteBuffer, Verified> entry = clockHand.next();
+        Verified candidate = entry.getValue();
+        if (entry.getKey().equals(added) || (candidate.clearUsed() && isUnexpired(candidate.claims, now))) {
+          continue;
+        }
+        verified.remove(entry.getKey(), candidate);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static boolean isUnexpired(Claims claims, long now) {
+    return claims.getExpiration().getTime() > now;
+  }
+
+  private static final class Verified {
+    final Claims claims;
+
+    private volatile boolean used;
+
+    Verified(Claims claims) {
+      this.claims = claims;
+    }
+
+    void use() {
+      if (!used) {
+        used = true;
+      }
+    }
+
+    /**
+     * Clears the used mark, returning whether it was set.
+     */
+    boolean clearUsed() {
+      if (used) {
+        used = false;
+        return true;
+      }
+      return false;
+    }
   }
 }
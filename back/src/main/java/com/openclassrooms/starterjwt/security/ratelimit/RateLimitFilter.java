@@ -0,0 +1,85 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Answers 429 with a Retry-After header once the client has used up a bucket of
+ * {@link RateLimiter}.
+ *
+ * The per-IP rules are checked by a filter placed before the JWT filter, so a rejected
+ * request does not pay for verifying its token; the per-user rules by one placed after
+ * it, once the user is known. The IP is the remote address as resolved from the
+ * forwarded headers of trusted proxies, see {@code server.forward-headers-strategy}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+  private static final String TOO_MANY_REQUESTS = "{\"message\":\"Error: Too many requests!\"}";
+
+  private final RateLimiter rateLimiter;
+
+  private final boolean perUser;
+
+  private RateLimitFilter(RateLimiter rateLimiter, boolean perUser) {
+    this.rateLimiter = rateLimiter;
+    this.perUser = perUser;
+  }
+
+  public static RateLimitFilter perIp(RateLimiter rateLimiter) {
+    return new RateLimitFilter(rateLimiter, false);
+  }
+
+  public static RateLimitFilter perUser(RateLimiter rateLimiter) {
+    return new RateLimitFilter(rateLimiter, true);
+  }
+
+  @Override
+  protected String getAlreadyFilteredAttributeName() {
+    return super.getAlreadyFilteredAttributeName() + (perUser ? ".user" : ".ip");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String ip = perUser ? null : request.getRemoteAddr();
+    String user = perUser ? currentUser() : null;
+    long wait = ip == null && user == null ? 0
+        : rateLimiter.acquire(request.getMethod(), request.getServletPath() + pathInfo(request), ip, user);
+    if (wait > 0) {
+      response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(toRetryAfterSeconds(wait)));
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      response.getWriter().write(TOO_MANY_REQUESTS);
+      return;
+    }
+
+    filterChain.doFilter(request, response);
+  }
+
+  private static String currentUser() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication == null || authentication instanceof AnonymousAuthenticationToken
+        ? null : authentication.getName();
+  }
+
+  private static long toRetryAfterSeconds(long waitNanos) {
+    long second = TimeUnit.SECONDS.toNanos(1);
+    return Math.max(1, (waitNanos + second - 1) / second);
+  }
+
+  private static String pathInfo(HttpServletRequest request) {
+    return request.getPathInfo() == null ? "" : request.getPathInfo();
+  }
+}
@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * One {@code oc.app.rateLimit.rules} entry, written
+ * {@code [METHOD ]<ant pattern>=<ip|user>:<capacity>/<period seconds>}, e.g.
+ * {@code POST /api/auth/login=ip:10/60}.
+ */
+final class RateLimitRule {
+  enum Key { IP, USER }
+
+  private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+  private final String method;
+
+  private final String pattern;
+
+  private final String prefix;
+
+  private final Key key;
+
+  private final int capacity;
+
+  private final long periodNanos;
+
+  private RateLimitRule(String method, String pattern, Key key, int capacity, long periodNanos) {
+    this.method = method;
+    this.pattern = pattern;
+    this.prefix = literalPrefix(pattern);
+    this.key = key;
+    this.capacity = capacity;
+    this.periodNanos = periodNanos;
+  }
+
+  static RateLimitRule parse(String rule) {
+    try {
+      String[] target = rule.trim().split("=", 2);
+      String[] limit = target[1].trim().split("[:/]");
+      String[] request = target[0].trim().split("\\s+", 2);
+      String method = request.length == 2 ? request[0].toUpperCase() : null;
+      String pattern = request[request.length - 1];
+      return new RateLimitRule(method, pattern, Key.valueOf(limit[0].trim().toUpperCase()),
+          Integer.parseInt(limit[1].trim()), TimeUnit.SECONDS.toNanos(Long.parseLong(limit[2].trim())));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid rate limit rule: " + rule, e);
+    }
+  }
+
+  boolean matches(String requestMethod, String path) {
+    if (method != null && !method.equals(requestMethod)) {
+      return false;
+    }
+    if (prefix == null) {
+      return MATCHER.match(pattern, path);
+    }
+    return pattern.length() == prefix.length()
+        ? path.equals(prefix)
+        : path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+  }
+
+  /**
+   * Patterns that are a literal path, or a literal path followed by {@code /**}, are
+   * matched without {@link AntPathMatcher}; this returns that literal, or null.
+   */
+  private static String literalPrefix(String pattern) {
+    String literal = pattern.endsWith("/**") ? pattern.substring(0, pattern.length() - 3) : pattern;
+    return MATCHER.isPattern(literal) || literal.contains("{") ? null : literal;
+  }
+
+  Key getKey() {
+    return key;
+  }
+
+  TokenBucket newBucket(long now) {
+    return new TokenBucket(capacity, periodNanos, now);
+  }
+
+  @Override
+  public String toString() {
+    return (method == null ? "" : method + " ") + pattern + "=" + key.name().toLowerCase() + ":" + capacity + "/"
+        + TimeUnit.NANOSECONDS.toSeconds(periodNanos);
+  }
+}
@@ -0,0 +1,163 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets per rule and client, configured by {@code oc.app.rateLimit.rules}.
+ *
+ * At most {@code oc.app.rateLimit.maxKeys} buckets are kept, give or take concurrent
+ * inserts. Full buckets carry no state and are dropped every
+ * {@code oc.app.rateLimit.sweepMs}. Until then, once the map is full, a new client
+ * takes the place of a full bucket found among the next {@value #EVICTION_SAMPLE} the
+ * eviction cursor visits; only when there is none do new clients share one overflow
+ * bucket per rule, rather than evicting a client that is being limited.
+ */
+@Component
+public class RateLimiter {
+  static final int EVICTION_SAMPLE = 32;
+
+  private final boolean enabled;
+
+  private final List<RateLimitRule> rules = new ArrayList<>();
+
+  private final List<TokenBucket> overflow = new ArrayList<>();
+
+  private final int maxKeys;
+
+  private final List<Map<String, TokenBucket>> buckets = new ArrayList<>();
+
+  private final LongAdder size = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /** Where eviction resumes in each rule's buckets, guarded by evictionLock. */
+  private final List<Iterator<Map.Entry<String, TokenBucket>>> cursors = new ArrayList<>();
+
+  public RateLimiter(@Value("${oc.app.rateLimit.enabled}") boolean enabled,
+                     @Value("${oc.app.rateLimit.rules}") String[] rules,
+                     @Value("${oc.app.rateLimit.maxKeys}") int maxKeys) {
+    this.enabled = enabled;
+    this.maxKeys = maxKeys;
+    long now = System.nanoTime();
+    for (String rule : rules) {
+      if (!rule.trim().isEmpty()) {
+        RateLimitRule parsed = RateLimitRule.parse(rule);
+        this.rules.add(parsed);
+        this.overflow.add(parsed.newBucket(now));
+        this.buckets.add(new ConcurrentHashMap<>());
+        this.cursors.add(null);
+      }
+    }
+  }
+
+  /**
+   * Takes a token from every bucket the request falls in and returns 0, or returns the
+   * nanoseconds to wait before retrying. {@code user} is null for anonymous requests.
+   */
+  public long acquire(String method, String path, String ip, String user) {
+    if (!enabled) {
+      return 0;
+    }
+
+    long now = System.nanoTime();
+    for (int i = 0; i < rules.size(); i++) {
+      RateLimitRule rule = rules.get(i);
+      String client = rule.getKey() == RateLimitRule.Key.IP ? ip : user;
+      if (client == null || !rule.matches(method, path)) {
+        continue;
+      }
+
+      long wait = bucket(i, client, now).tryAcquire(now);
+      if (wait > 0) {
+        rejected.increment();
+        return wait;
+      }
+    }
+    return 0;
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.rateLimit.sweepMs}", initialDelayString = "${oc.app.rateLimit.sweepMs}")
+  public void sweep() {
+    long now = System.nanoTime();
+    for (Map<String, TokenBucket> clients : buckets) {
+      for (Map.Entry<String, TokenBucket> entry : clients.entrySet()) {
+        if (entry.getValue().isFull(now) && clients.remove(entry.getKey(), entry.getValue())) {
+          size.decrement();
+        }
+      }
+    }
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public int size() {
+    return size.intValue();
+  }
+
+  private TokenBucket bucket(int rule, String client, long now) {
+    Map<String, TokenBucket> clients = buckets.get(rule);
+    TokenBucket bucket = clients.get(client);
+    if (bucket != null) {
+      return bucket;
+    }
+    if (size.sum() >= maxKeys && !evictIdle(rule, now)) {
+      return overflow.get(rule);
+    }
+    return clients.computeIfAbsent(client, k -> {
+      size.increment();
+      return rules.get(rule).newBucket(now);
+    });
+  }
+
+  /**
+   * Removes one full bucket, looking at no more than {@value #EVICTION_SAMPLE} buckets,
+   * those of {@code rule} first. Returns false when all of them are in use.
+   */
+  private boolean evictIdle(int rule, long now) {
+    evictionLock.lock();
+    try {
+      int budget = EVICTION_SAMPLE;
+      for (int offset = 0; offset < buckets.size() && budget > 0; offset++) {
+        int index = (rule + offset) % buckets.size();
+        Map<String, TokenBucket> clients = buckets.get(index);
+        Iterator<Map.Entry<String, TokenBucket>> cursor = cursors.get(index);
+        boolean restarted = false;
+        while (budget > 0) {
+          if (cursor == null || !cursor.hasNext()) {
+            if (restarted) {
+              break;
+            }
+            cursor = clients.entrySet().iterator();
+            restarted = true;
+            continue;
+          }
+          Map.Entry<String, TokenBucket> entry = cursor.next();
+          budget--;
+          if (entry.getValue().isFull(now) && clients.remove(entry.getKey(), entry.getValue())) {
+            size.decrement();
+            cursors.set(index, cursor);
+            return true;
+          }
+        }
+        cursors.set(index, cursor);
+      }
+      return false;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket of {@code capacity} tokens refilled over {@code periodNanos}.
+ *
+ * Implemented as the generic cell rate algorithm: the whole state is the theoretical
+ * arrival time of the next request, so taking a token is a single compare-and-set and a
+ * bucket whose arrival time has passed is full, i.e. indistinguishable from a new one.
+ */
+final class TokenBucket {
+  private final long intervalNanos;
+
+  private final long burstNanos;
+
+  private final AtomicLong arrival;
+
+  TokenBucket(int capacity, long periodNanos, long now) {
+    this.intervalNanos = Math.max(1, periodNanos / capacity);
+    this.burstNanos = intervalNanos * capacity;
+    this.arrival = new AtomicLong(now);
+  }
+
+  /**
+   * Takes a token and returns 0, or returns how many nanoseconds to wait for the next one.
+   */
+  long tryAcquire(long now) {
+    while (true) {
+      long current = arrival.get();
+      long next = Math.max(current, now) + intervalNanos;
+      long wait = next - now - burstNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (arrival.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  boolean isFull(long now) {
+    return arrival.get() <= now;
+  }
+}
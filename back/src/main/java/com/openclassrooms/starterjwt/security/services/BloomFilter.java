@@ -0,0 +1,84 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings: {@link #mightContain} never misses a value that was
+ * {@link #put}, and wrongly matches about {@code falsePositiveRate} of the others while at
+ * most {@code expectedInsertions} values were added.
+ */
+final class BloomFilter {
+  private final AtomicLongArray words;
+
+  private final int bitCount;
+
+  private final int hashCount;
+
+  private final AtomicInteger insertions = new AtomicInteger();
+
+  BloomFilter(int expectedInsertions, double falsePositiveRate) {
+    int expected = Math.max(1, expectedInsertions);
+    double ln2 = Math.log(2);
+    long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+    int wordCount = (int) Math.min(Integer.MAX_VALUE / 64, Math.max(1, (bits + 63) / 64));
+    this.words = new AtomicLongArray(wordCount);
+    this.bitCount = wordCount * 64;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * ln2));
+  }
+
+  void put(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      int bit = index(h1 + i * h2);
+      long mask = 1L << bit;
+      int word = bit >>> 6;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+    insertions.incrementAndGet();
+  }
+
+  boolean mightContain(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      int bit = index(h1 + i * h2);
+      if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int getInsertions() {
+    return insertions.get();
+  }
+
+  private int index(int combined) {
+    return (combined & Integer.MAX_VALUE) % bitCount;
+  }
+
+  /**
+   * FNV-1a over the characters followed by the MurmurHash3 finalizer, so both halves of the
+   * result are well mixed for double hashing.
+   */
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
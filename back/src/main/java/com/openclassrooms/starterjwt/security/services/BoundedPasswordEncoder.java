@@ -0,0 +1,157 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+/**
+ * Runs the hashing chosen by {@link PasswordCostCalibrator} on a dedicated pool of
+ * {@code oc.app.passwordHashing.threads} threads with at most
+ * {@code oc.app.passwordHashing.queueCapacity} waiting hashes.
+ *
+ * A login spike therefore holds at most threads + queue request threads; any further login
+ * or registration is refused at once with a 503 instead of piling up on the request pool.
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+  private final PasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final long timeoutMs;
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LongAdder hashes = new LongAdder();
+
+  private final LongAdder hashNanos = new LongAdder();
+
+  private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+
+  @Autowired
+  public BoundedPasswordEncoder(PasswordCostCalibrator calibrator,
+                                @Value("${oc.app.passwordHashing.threads}") int threads,
+                                @Value("${oc.app.passwordHashing.queueCapacity}") int queueCapacity,
+                                @Value("${oc.app.passwordHashing.timeoutMs}") long timeoutMs) {
+    this(calibrator.createEncoder(), threads, queueCapacity, timeoutMs);
+  }
+
+  BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long timeoutMs) {
+    this.delegate = delegate;
+    this.timeoutMs = timeoutMs;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new HashingThreadFactory());
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return run(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getHashCount() {
+    return hashes.sum();
+  }
+
+  public long getHashTimeNanos() {
+    return hashNanos.sum();
+  }
+
+  public long getMaxHashTimeNanos() {
+    return maxHashNanos.get();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private <T> T run(Callable<T> hashing) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timed(hashing));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new ServiceUnavailableException();
+    }
+
+    try {
+      return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      rejected.increment();
+      throw new ServiceUnavailableException();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private <T> T timed(Callable<T> hashing) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return hashing.call();
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      hashes.increment();
+      hashNanos.add(elapsed);
+      maxHashNanos.accumulate(elapsed);
+    }
+  }
+
+  private static final class HashingThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
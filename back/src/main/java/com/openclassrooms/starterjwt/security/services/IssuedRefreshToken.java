@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A freshly issued refresh token value, which is never stored, and the principal it was
+ * issued to.
+ */
+@Getter
+@AllArgsConstructor
+public class IssuedRefreshToken {
+  private final String token;
+
+  private final Date expiresAt;
+
+  private final UserDetailsImpl principal;
+}
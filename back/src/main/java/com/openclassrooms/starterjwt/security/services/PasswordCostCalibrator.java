@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the BCrypt cost for this host at startup: the highest strength between
+ * {@code oc.app.passwordHashing.minStrength} and {@code maxStrength} whose hash still takes
+ * at most {@code oc.app.passwordHashing.targetMs}. A non-zero
+ * {@code oc.app.passwordHashing.strength} skips the measurement.
+ *
+ * New hashes are stored as {@code {bcrypt}<hash>}; hashes stored without an id or with
+ * another cost still verify. {@link PasswordEncoder#upgradeEncoding} reports those without
+ * an id or with a lower cost so they can be replaced on the next successful login, but
+ * never those with a higher cost: a measurement that comes out one step lower after a
+ * restart must not rehash every password on login, and back again on the next restart.
+ */
+@Component
+public class PasswordCostCalibrator {
+  static final String BCRYPT_ID = "bcrypt";
+
+  private static final Logger logger = LoggerFactory.getLogger(PasswordCostCalibrator.class);
+
+  private static final String SAMPLE = "calibration-sample";
+
+  private final int strength;
+
+  public PasswordCostCalibrator(@Value("${oc.app.passwordHashing.strength}") int strength,
+                                @Value("${oc.app.passwordHashing.targetMs}") long targetMs,
+                                @Value("${oc.app.passwordHashing.minStrength}") int minStrength,
+                                @Value("${oc.app.passwordHashing.maxStrength}") int maxStrength) {
+    this.strength = strength > 0 ? strength : calibrate(targetMs, minStrength, maxStrength);
+  }
+
+  public int getStrength() {
+    return strength;
+  }
+
+  public PasswordEncoder createEncoder() {
+    PasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+    Map<String, PasswordEncoder> encoders = new HashMap<>();
+    encoders.put(BCRYPT_ID, bcrypt);
+    DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+    encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+    return encoder;
+  }
+
+  static int calibrate(long targetMs, int minStrength, int maxStrength) {
+    long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMs);
+    new BCryptPasswordEncoder(minStrength).encode(SAMPLE);
+
+    int chosen = minStrength;
+    for (int candidate = minStrength; candidate <= maxStrength; candidate++) {
+      long start = System.nanoTime();
+      new BCryptPasswordEncoder(candidate).encode(SAMPLE);
+      long elapsed = System.nanoTime() - start;
+      if (elapsed > targetNanos && candidate > minStrength) {
+        break;
+      }
+      chosen = candidate;
+      logger.debug("BCrypt strength {} takes {} ms", candidate, TimeUnit.NANOSECONDS.toMillis(elapsed));
+      if (elapsed * 2 > targetNanos) {
+        break;
+      }
+    }
+
+    logger.info("Using BCrypt strength {} for a {} ms target", chosen, targetMs);
+    return chosen;
+  }
+}
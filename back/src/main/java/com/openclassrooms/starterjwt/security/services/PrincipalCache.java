@@ -0,0 +1,185 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.services.UserChangedEvent;
+
+/**
+ * Bounded, time-limited cache of authenticated principals keyed by email, so a burst of
+ * requests carrying the same token costs one USERS lookup instead of one per request.
+ *
+ * All entries live for the same TTL, so the order they were loaded in is also the order
+ * they expire in: a miss drops the expired entries from the head of that queue and, when
+ * the cache is full, the oldest ones, without scanning the cache. Entries are indexed by
+ * user id as well, for {@link #invalidate(Long)}.
+ */
+@Component
+public class PrincipalCache {
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Map<Long, Set<String>> emailsById = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Entries in load order, including some since replaced or removed; guarded by lock. */
+  private final Deque<Entry> loadOrder = new ArrayDeque<>();
+
+  private final long ttlNanos;
+
+  private final int maxEntries;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  public PrincipalCache(@Value("${oc.app.principalCache.ttlMs}") long ttlMs,
+                        @Value("${oc.app.principalCache.maxEntries}") int maxEntries) {
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    this.maxEntries = maxEntries;
+  }
+
+  public UserDetailsImpl get(String email, Function<String, UserDetailsImpl> loader) {
+    long now = System.nanoTime();
+    Entry entry = entries.get(email);
+    if (entry != null && now - entry.loadedAt < ttlNanos) {
+      hits.increment();
+      return entry.principal;
+    }
+
+    misses.increment();
+    UserDetailsImpl principal = loader.apply(email);
+    Entry loaded = new Entry(email, principal, now);
+    lock.lock();
+    try {
+      expire(now);
+      makeRoom(email);
+      Entry previous = entries.put(email, loaded);
+      if (previous != null) {
+        unindex(previous);
+      }
+      index(loaded);
+      loadOrder.addLast(loaded);
+    } finally {
+      lock.unlock();
+    }
+    return principal;
+  }
+
+  public void invalidate(String email) {
+    Entry entry = entries.remove(email);
+    if (entry != null) {
+      unindex(entry);
+    }
+  }
+
+  public void invalidate(Long userId) {
+    Set<String> emails = emailsById.remove(userId);
+    if (emails == null) {
+      return;
+    }
+    for (String email : emails) {
+      Entry entry = entries.get(email);
+      if (entry != null && userId.equals(entry.principal.getId())) {
+        entries.remove(email, entry);
+      }
+    }
+  }
+
+  @EventListener
+  public void onUserChanged(UserChangedEvent event) {
+    invalidate(event.getUserId());
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public double getHitRate() {
+    long hitCount = getHits();
+    long total = hitCount + getMisses();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private void expire(long now) {
+    while (!loadOrder.isEmpty() && now - loadOrder.peekFirst().loadedAt >= ttlNanos) {
+      Entry entry = loadOrder.pollFirst();
+      if (entries.remove(entry.email, entry)) {
+        unindex(entry);
+      }
+    }
+  }
+
+  private void makeRoom(String email) {
+    while (entries.size() >= maxEntries && !entries.containsKey(email)) {
+      Entry oldest = loadOrder.pollFirst();
+      if (oldest == null) {
+        return;
+      }
+      if (entries.remove(oldest.email, oldest)) {
+        unindex(oldest);
+        evictions.increment();
+      }
+    }
+  }
+
+  private void index(Entry entry) {
+    Long id = entry.principal.getId();
+    if (id != null) {
+      emailsById.compute(id, (key, emails) -> {
+        Set<String> indexed = emails == null ? ConcurrentHashMap.newKeySet() : emails;
+        indexed.add(entry.email);
+        return indexed;
+      });
+    }
+  }
+
+  private void unindex(Entry entry) {
+    Long id = entry.principal.getId();
+    if (id != null) {
+      emailsById.computeIfPresent(id, (key, emails) -> {
+        emails.remove(entry.email);
+        return emails.isEmpty() ? null : emails;
+      });
+    }
+  }
+
+  private static final class Entry {
+    private final String email;
+
+    private final UserDetailsImpl principal;
+
+    private final long loadedAt;
+
+    private Entry(String email, UserDetailsImpl principal, long loadedAt) {
+      this.email = email;
+      this.principal = principal;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
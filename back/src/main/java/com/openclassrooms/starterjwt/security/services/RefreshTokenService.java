@@ -0,0 +1,135 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+
+/**
+ * Issues and rotates opaque refresh tokens persisted in REFRESH_TOKENS.
+ *
+ * A refresh token can be exchanged once. Presenting it again means it leaked, so the whole
+ * family issued from the same login is revoked and its holder has to log in again.
+ */
+@Service
+public class RefreshTokenService {
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+  private static final int TOKEN_BYTES = 32;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final RefreshTokenRepository refreshTokenRepository;
+
+  private final UserDetailsServiceImpl userDetailsService;
+
+  private final long expirationMs;
+
+  public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                             UserDetailsServiceImpl userDetailsService,
+                             @Value("${oc.app.refreshTokenExpirationMs}") long expirationMs) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.userDetailsService = userDetailsService;
+    this.expirationMs = expirationMs;
+  }
+
+  /**
+   * Starts a new token family for a principal that just logged in.
+   */
+  public IssuedRefreshToken issue(UserDetailsImpl principal) {
+    return issue(principal, UUID.randomUUID().toString());
+  }
+
+  /**
+   * Exchanges a refresh token for a new one of the same family, along with the current
+   * state of its user.
+   */
+  @Transactional(noRollbackFor = UnauthorizedException.class)
+  public IssuedRefreshToken rotate(String token) {
+    RefreshToken current = refreshTokenRepository.findByTokenHash(hash(token))
+        .orElseThrow(UnauthorizedException::new);
+    LocalDateTime now = LocalDateTime.now();
+    if (current.isRevoked() || !current.getExpiresAt().isAfter(now)) {
+      throw new UnauthorizedException();
+    }
+    if (refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+      logger.warn("Refresh token reused for user {}, revoking family {}", current.getUserId(), current.getFamilyId());
+      refreshTokenRepository.revokeFamily(current.getFamilyId());
+      throw new UnauthorizedException();
+    }
+
+    Optional<UserDetailsImpl> principal = userDetailsService.findUserById(current.getUserId());
+    if (!principal.isPresent()) {
+      refreshTokenRepository.revokeFamily(current.getFamilyId());
+      throw new UnauthorizedException();
+    }
+    return issue(principal.get(), current.getFamilyId());
+  }
+
+  /**
+   * Revokes the family of the given token, if it exists.
+   */
+  @Transactional
+  public void revoke(String token) {
+    refreshTokenRepository.findByTokenHash(hash(token))
+        .ifPresent(current -> refreshTokenRepository.revokeFamily(current.getFamilyId()));
+  }
+
+  /**
+   * Revokes every family of the given user.
+   */
+  @Transactional
+  public void revokeAll(Long userId) {
+    refreshTokenRepository.revokeUser(userId);
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.refreshTokenPurgeMs}", initialDelayString = "${oc.app.refreshTokenPurgeMs}")
+  public void purgeExpired() {
+    refreshTokenRepository.deleteExpired(LocalDateTime.now());
+  }
+
+  private IssuedRefreshToken issue(UserDetailsImpl principal, String familyId) {
+    byte[] bytes = new byte[TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    Date expiresAt = new Date(System.currentTimeMillis() + expirationMs);
+
+    refreshTokenRepository.save(RefreshToken.builder()
+        .tokenHash(hash(token))
+        .familyId(familyId)
+        .userId(principal.getId())
+        .expiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()))
+        .build());
+    return new IssuedRefreshToken(token, expiresAt, principal);
+  }
+
+  static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+
+/**
+ * Username/password authentication that migrates outdated hashes after a successful login.
+ *
+ * Unlike {@link DaoAuthenticationProvider}'s own upgrade, the new hash and the USERS update
+ * run on a single background thread, so the login response waits for neither. The update
+ * only applies if the stored hash is still the one that was verified, and rehashes that do
+ * not fit in the queue are dropped and retried on a later login.
+ */
+@Component
+public class RehashingAuthenticationProvider extends DaoAuthenticationProvider {
+  private static final Logger logger = LoggerFactory.getLogger(RehashingAuthenticationProvider.class);
+
+  private static final int QUEUE_CAPACITY = 64;
+
+  private final PasswordEncoder passwordEncoder;
+
+  private final UserRepository userRepository;
+
+  private final PrincipalCache principalCache;
+
+  private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+        Thread thread = new Thread(runnable, "password-rehash");
+        thread.setDaemon(true);
+        return thread;
+      }, new ThreadPoolExecutor.DiscardPolicy());
+
+  private final LongAdder rehashed = new LongAdder();
+
+  public RehashingAuthenticationProvider(UserDetailsServiceImpl userDetailsService,
+                                         PasswordEncoder passwordEncoder,
+                                         UserRepository userRepository,
+                                         PrincipalCache principalCache) {
+    setUserDetailsService(userDetailsService);
+    setPasswordEncoder(passwordEncoder);
+    this.passwordEncoder = passwordEncoder;
+    this.userRepository = userRepository;
+    this.principalCache = principalCache;
+  }
+
+  public long getRehashed() {
+    return rehashed.sum();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+    String previous = user.getPassword();
+    if (previous != null && authentication.getCredentials() != null && passwordEncoder.upgradeEncoding(previous)) {
+      String presented = authentication.getCredentials().toString();
+      executor.execute(() -> rehash(user.getUsername(), presented, previous));
+    }
+    return super.createSuccessAuthentication(principal, authentication, user);
+  }
+
+  private void rehash(String email, String presented, String previous) {
+    try {
+      if (userRepository.updatePassword(email, previous, passwordEncoder.encode(presented)) > 0) {
+        principalCache.invalidate(email);
+        rehashed.increment();
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Could not rehash password of {}: {}", email, e.toString());
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Denylist of revoked token ids, persisted in REVOKED_TOKENS until the tokens expire.
+ *
+ * Every id is also added to an in-memory {@link BloomFilter}, so checking a token that was
+ * never revoked costs a few bit lookups; the table is only queried when the filter matches.
+ * Revocations made by other instances are picked up every
+ * {@code oc.app.revocation.refreshMs}, and the filter is rebuilt without the expired ids
+ * every {@code oc.app.revocation.rebuildMs} or once it holds more than
+ * {@code oc.app.revocation.expectedEntries} ids.
+ *
+ * The filter is first built once the application is ready. Until then, or while the
+ * database cannot be read to build it, every check goes to the table instead.
+ *
+ * Revoking a subject, when its account is deleted, stores one row keyed by the subject
+ * that rejects every token issued to it up to that point.
+ */
+@Service
+public class TokenRevocationService {
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  private static final String SUBJECT_PREFIX = "subject:";
+
+  private final RevokedTokenRepository revokedTokenRepository;
+
+  private final JwtUtils jwtUtils;
+
+  private final int expectedEntries;
+
+  private final double falsePositiveRate;
+
+  private final long refreshMs;
+
+  private final long rebuildNanos;
+
+  private volatile BloomFilter filter;
+
+  private LocalDateTime lastRefresh;
+
+  private long lastRebuild;
+
+  private final LongAdder filterHits = new LongAdder();
+
+  private final LongAdder falsePositives = new LongAdder();
+
+  public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                JwtUtils jwtUtils,
+                                @Value("${oc.app.revocation.expectedEntries}") int expectedEntries,
+                                @Value("${oc.app.revocation.falsePositiveRate}") double falsePositiveRate,
+                                @Value("${oc.app.revocation.refreshMs}") long refreshMs,
+                                @Value("${oc.app.revocation.rebuildMs}") long rebuildMs) {
+    this.revokedTokenRepository = revokedTokenRepository;
+    this.jwtUtils = jwtUtils;
+    this.expectedEntries = expectedEntries;
+    this.falsePositiveRate = falsePositiveRate;
+    this.refreshMs = refreshMs;
+    this.rebuildNanos = TimeUnit.MILLISECONDS.toNanos(rebuildMs);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    try {
+      rebuild();
+    } catch (DataAccessException | TransactionException e) {
+      logger.warn("Revocation filter not built, checking tokens against the database: {}", e.toString());
+    }
+  }
+
+  public synchronized void rebuild() {
+    LocalDateTime now = LocalDateTime.now();
+    revokedTokenRepository.deleteExpired(now);
+    BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+    revokedTokenRepository.findActiveIds(now).forEach(rebuilt::put);
+    filter = rebuilt;
+    lastRefresh = now;
+    lastRebuild = System.nanoTime();
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.revocation.refreshMs}", initialDelayString = "${oc.app.revocation.refreshMs}")
+  public synchronized void refresh() {
+    if (filter == null) {
+      load();
+      return;
+    }
+    if (System.nanoTime() - lastRebuild >= rebuildNanos || filter.getInsertions() > expectedEntries) {
+      rebuild();
+      return;
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    revokedTokenRepository.findIdsRevokedSince(lastRefresh.minusNanos(TimeUnit.MILLISECONDS.toNanos(refreshMs)), now)
+        .forEach(filter::put);
+    lastRefresh = now;
+  }
+
+  /**
+   * Revokes the given token if it is valid and carries an id; returns whether it did.
+   */
+  public boolean revoke(String token) {
+    Claims claims = token == null ? null : jwtUtils.parseJwtToken(token);
+    if (claims == null || claims.getId() == null) {
+      return false;
+    }
+
+    revoke(claims.getId(), claims.getExpiration());
+    return true;
+  }
+
+  public void revoke(String tokenId, Date expiration) {
+    save(tokenId, LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault()), LocalDateTime.now());
+  }
+
+  /**
+   * Revokes every token issued to {@code subject} so far, until the longest-lived of them
+   * would have expired.
+   */
+  public void revokeAll(String subject) {
+    LocalDateTime now = LocalDateTime.now();
+    save(subjectKey(subject), now.plus(jwtUtils.getMaxExpirationMs(), ChronoUnit.MILLIS), now);
+  }
+
+  public boolean isRevoked(String tokenId) {
+    return tokenId != null && find(tokenId).isPresent();
+  }
+
+  /**
+   * Whether the token was revoked by its id, or issued to a subject before it was revoked.
+   */
+  public boolean isTokenRevoked(Claims claims) {
+    if (isRevoked(claims.getId())) {
+      return true;
+    }
+    if (claims.getSubject() == null) {
+      return false;
+    }
+
+    Optional<RevokedToken> subject = find(subjectKey(claims.getSubject()));
+    if (!subject.isPresent()) {
+      return false;
+    }
+    Date issuedAt = claims.getIssuedAt();
+    return issuedAt == null
+        || !issuedAt.after(Date.from(subject.get().getRevokedAt().atZone(ZoneId.systemDefault()).toInstant()));
+  }
+
+  public long getFilterHits() {
+    return filterHits.sum();
+  }
+
+  public long getFalsePositives() {
+    return falsePositives.sum();
+  }
+
+  private synchronized void save(String id, LocalDateTime expiresAt, LocalDateTime revokedAt) {
+    revokedTokenRepository.save(RevokedToken.builder()
+        .id(id)
+        .expiresAt(expiresAt)
+        .revokedAt(revokedAt)
+        .build());
+    BloomFilter current = filter;
+    if (current != null) {
+      current.put(id);
+    }
+  }
+
+  private Optional<RevokedToken> find(String id) {
+    BloomFilter current = filter;
+    if (current != null) {
+      if (!current.mightContain(id)) {
+        return Optional.empty();
+      }
+      filterHits.increment();
+    }
+
+    Optional<RevokedToken> revoked = revokedTokenRepository.findById(id);
+    if (current != null && !revoked.isPresent()) {
+      falsePositives.increment();
+    }
+    return revoked;
+  }
+
+  /**
+   * A token-id-sized key for the subject, which cannot collide with the random UUIDs used
+   * as token ids.
+   */
+  static String subjectKey(String subject) {
+    return UUID.nameUUIDFromBytes((SUBJECT_PREFIX + subject).getBytes(StandardCharsets.UTF_8)).toString();
+  }
+}
@@ -1,10 +1,13 @@
 package com.openclassrooms.starterjwt.security.services;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -19,6 +22,9 @@ import lombok.Getter;
 public class UserDetailsImpl implements UserDetails {
   private static final long serialVersionUID = 1L;
 
+  private static final Set<GrantedAuthority> ADMIN_AUTHORITIES =
+      Collections.singleton(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
   private Long id;
 
   private String username;
@@ -32,8 +38,11 @@ public class UserDetailsImpl implements UserDetails {
   @JsonIgnore
   private String password;  
   
+  /**
+   * Admins get {@code ROLE_ADMIN}, which guards the actuator endpoints.
+   */
   public Collection<? extends GrantedAuthority> getAuthorities() {        
-      return new HashSet<GrantedAuthority>();
+      return Boolean.TRUE.equals(admin) ? ADMIN_AUTHORITIES : new HashSet<GrantedAuthority>();
   }
 
   @Override
@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security.services;
 
-import org.springframework.security.core.userdetails.UserDetails;
+import java.util.Optional;
+
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -19,18 +20,27 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
   @Override
   @Transactional
-  public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+  public UserDetailsImpl loadUserByUsername(String username) throws UsernameNotFoundException {
     User user = userRepository.findByEmail(username)
         .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
 
+    return build(user);
+  }
+
+  @Transactional
+  public Optional<UserDetailsImpl> findUserById(Long id) {
+    return userRepository.findById(id).map(UserDetailsServiceImpl::build);
+  }
+
+  private static UserDetailsImpl build(User user) {
     return UserDetailsImpl
             .builder()
             .id(user.getId())
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
             .password(user.getPassword())
             .build();
   }
-
 }
@@ -0,0 +1,14 @@
+package com.openclassrooms.starterjwt.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ParticipationResult {
+    private final Long sessionId;
+
+    private final Long userId;
+
+    private final ParticipationStatus status;
+}
@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.services;
+
+public enum ParticipationStatus {
+    PARTICIPATING,
+    WAITLISTED,
+    ALREADY_PARTICIPATING,
+    SESSION_NOT_FOUND,
+    USER_NOT_FOUND
+}
@@ -0,0 +1,295 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Read model of {@link SessionDto} kept in front of {@link SessionService}.
+ *
+ * While every session fits in {@code oc.app.sessionCatalog.maxEntries} the catalog is
+ * complete and answers lookups, listings and pages without the database. Once an entry
+ * had to be evicted, listings go back to the database and only lookups are cached.
+ *
+ * Off unless {@code oc.app.sessionCatalog.enabled} is set. It is loaded once the
+ * application is ready; if the database cannot be read then, the catalog stays
+ * incomplete and serves from the database instead of failing the startup.
+ *
+ * Every change bumps a version, which tags the lists served from memory, so conditional
+ * requests are answered without a query too.
+ *
+ * An entry is only ever replaced by a read of the session made under that session's
+ * lock, after the write that triggered it committed, so concurrent writes to the same
+ * session cannot leave an older snapshot behind.
+ */
+@Service
+@Log4j2
+public class SessionCatalog {
+    private static final int LOCK_STRIPES = 64;
+
+    private final SessionService sessionService;
+
+    private final SessionMapper sessionMapper;
+
+    private final boolean enabled;
+
+    private final int maxEntries;
+
+    private final ConcurrentSkipListMap<Long, SessionDto> byId = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentSkipListMap<SessionCursor, SessionDto> byDate = new ConcurrentSkipListMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final Object loadLock = new Object();
+
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+
+    private volatile long version;
+
+    private volatile boolean complete;
+
+    private volatile Set<Long> changedDuringLoad;
+
+    public SessionCatalog(SessionService sessionService,
+                          SessionMapper sessionMapper,
+                          @Value("${oc.app.sessionCatalog.enabled:false}") boolean enabled,
+                          @Value("${oc.app.sessionCatalog.maxEntries}") int maxEntries) {
+        this.sessionService = sessionService;
+        this.sessionMapper = sessionMapper;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Loads up to {@code maxEntries} sessions. Sessions written while loading are read
+     * again at the end, since their page may have been read before the write.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!this.enabled) {
+            return;
+        }
+
+        synchronized (this.loadLock) {
+            loadEntries();
+        }
+    }
+
+    private void loadEntries() {
+        this.complete = false;
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        this.changedDuringLoad = changed;
+        try {
+            clear();
+            long evicted = this.evictions.sum();
+            String cursor = null;
+            do {
+                SessionPage page = this.sessionService.findPage(null, null, null, cursor, Math.max(1, this.maxEntries - this.byId.size()));
+                this.sessionMapper.toDto(page.getSessions()).forEach(this::put);
+                cursor = page.getNextCursor();
+            } while (cursor != null && this.byId.size() < this.maxEntries);
+
+            changed.forEach(this::refresh);
+            this.complete = cursor == null && this.evictions.sum() == evicted;
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Session catalog not loaded, reading sessions from the database: {}", e.toString());
+        } finally {
+            this.changedDuringLoad = null;
+        }
+    }
+
+    public SessionDto findById(Long id) {
+        SessionDto cached = this.enabled ? this.byId.get(id) : null;
+        if (cached != null || (this.enabled && this.complete)) {
+            this.hits.increment();
+            return cached;
+        }
+
+        this.misses.increment();
+        if (this.enabled) {
+            return refresh(id);
+        }
+        Session session = this.sessionService.getById(id);
+        return session == null ? null : this.sessionMapper.toDto(session);
+    }
+
+    public List<SessionDto> findAll() {
+        if (this.enabled && this.complete) {
+            this.hits.increment();
+            return new ArrayList<>(this.byId.values());
+        }
+
+        this.misses.increment();
+        return this.sessionMapper.toDto(this.sessionService.findAll());
+    }
+
+    /**
+     * Returns the sessions that still exist, in the order of {@code ids}.
+     */
+    public List<SessionDto> findAllById(List<Long> ids) {
+        if (this.enabled && this.complete) {
+            this.hits.increment();
+            return ids.stream().map(this.byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+
+        this.misses.increment();
+        return this.sessionMapper.toDto(this.sessionService.findAllById(ids));
+    }
+
+    public SessionPageDto findPage(Date from, Date to, Long teacherId, String cursor, Integer size) {
+        if (!this.enabled || !this.complete) {
+            this.misses.increment();
+            SessionPage page = this.sessionService.findPage(from, to, teacherId, cursor, size);
+            return new SessionPageDto(this.sessionMapper.toDto(page.getSessions()), page.getNextCursor());
+        }
+
+        int limit = this.sessionService.resolvePageSize(size);
+        ConcurrentNavigableMap<SessionCursor, SessionDto> tail = this.byDate.tailMap(this.sessionService.resolveStart(from, cursor), false);
+        this.hits.increment();
+
+        List<SessionDto> items = new ArrayList<>(Math.min(limit, tail.size()));
+        SessionCursor last = null;
+        for (Map.Entry<SessionCursor, SessionDto> entry : tail.entrySet()) {
+            if (to != null && entry.getKey().getDate().getTime() >= to.getTime()) {
+                break;
+            }
+            if (teacherId != null && !teacherId.equals(entry.getValue().getTeacher_id())) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return new SessionPageDto(items, last.encode());
+            }
+            items.add(entry.getValue());
+            last = entry.getKey();
+        }
+        return new SessionPageDto(items, null);
+    }
+
+    /**
+     * Tag of one variant of the session list, such as a page; {@code variant} holds the
+     * request parameters that select it.
+     */
+    public String getETag(Object... variant) {
+        if (this.enabled && this.complete) {
+            return VersionTag.of("sessions", this.epoch, this.version, variant);
+        }
+        return this.sessionService.getETag(variant);
+    }
+
+    public String getETag(Long id) {
+        if (this.enabled && this.complete) {
+            SessionDto cached = this.byId.get(id);
+            return cached == null ? null : VersionTag.of("session", id, cached.getUpdatedAt());
+        }
+        return this.sessionService.getETag(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(SessionChangedEvent event) {
+        if (!this.enabled) {
+            return;
+        }
+
+        Set<Long> changed = this.changedDuringLoad;
+        if (changed != null) {
+            changed.add(event.getSessionId());
+        }
+        refresh(event.getSessionId());
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    public int size() {
+        return this.byId.size();
+    }
+
+    public boolean isComplete() {
+        return this.enabled && this.complete;
+    }
+
+    /**
+     * Reads the session and stores what was read, under the session's lock: whichever
+     * caller reads last also stores last.
+     */
+    private SessionDto refresh(Long id) {
+        synchronized (this.locks[(int) (id & (LOCK_STRIPES - 1))]) {
+            Session session = this.sessionService.getById(id);
+            if (session == null) {
+                remove(id);
+                return null;
+            }
+            SessionDto dto = this.sessionMapper.toDto(session);
+            put(dto);
+            return dto;
+        }
+    }
+
+    private synchronized void put(SessionDto dto) {
+        remove(dto.getId());
+        this.byId.put(dto.getId(), dto);
+        this.byDate.put(new SessionCursor(dto.getDate(), dto.getId()), dto);
+        while (this.byId.size() > this.maxEntries) {
+            Map.Entry<SessionCursor, SessionDto> oldest = this.byDate.pollFirstEntry();
+            this.byId.remove(oldest.getValue().getId());
+            this.evictions.increment();
+            this.complete = false;
+        }
+        this.version++;
+    }
+
+    private synchronized void remove(Long id) {
+        SessionDto previous = this.byId.remove(id);
+        if (previous != null) {
+            this.byDate.remove(new SessionCursor(previous.getDate(), previous.getId()));
+            this.version++;
+        }
+    }
+
+    private synchronized void clear() {
+        this.byId.clear();
+        this.byDate.clear();
+        this.version++;
+    }
+}
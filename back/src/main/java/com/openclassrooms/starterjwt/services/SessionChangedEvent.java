@@ -0,0 +1,16 @@
+package com.openclassrooms.starterjwt.services;
+
+import lombok.Getter;
+
+/**
+ * Published by {@link SessionService} whenever a session, its participants or its
+ * waitlist were written, including when the session was deleted.
+ */
+@Getter
+public class SessionChangedEvent {
+    private final Long sessionId;
+
+    public SessionChangedEvent(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset position in the (date, id) ordering of sessions.
+ */
+@Getter
+public class SessionCursor implements Comparable<SessionCursor> {
+    private final Date date;
+
+    private final Long id;
+
+    public SessionCursor(Date date, Long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static SessionCursor of(Session session) {
+        return new SessionCursor(session.getDate(), session.getId());
+    }
+
+    public boolean isAfter(SessionCursor other) {
+        return compareTo(other) > 0;
+    }
+
+    @Override
+    public int compareTo(SessionCursor other) {
+        int byDate = Long.compare(this.date.getTime(), other.date.getTime());
+        return byDate != 0 ? byDate : Long.compare(this.id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SessionCursor)) {
+            return false;
+        }
+        return compareTo((SessionCursor) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.date.getTime()) * 31 + Long.hashCode(this.id);
+    }
+
+    public String encode() {
+        String raw = this.date.getTime() + ":" + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SessionCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                throw new BadRequestException();
+            }
+            return new SessionCursor(new Date(Long.parseLong(raw.substring(0, separator))),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index over session names, descriptions and teacher names.
+ *
+ * Terms are accent-folded and lower-cased, so "Étirements" matches "etirement" and
+ * "cœur" matches "coeur". Every
+ * query token must match a term exactly or as a prefix; results are ranked by tf-idf
+ * with names weighted above teachers and teachers above descriptions.
+ *
+ * On unless {@code oc.app.searchIndex.enabled} is false. Until it is loaded, or when it
+ * is off or could not be loaded, each search asks the database for at most
+ * {@value #FALLBACK_CANDIDATES} sessions containing the query's longest token and ranks
+ * those in a throwaway index instead. That fallback only finds text spelled as in the
+ * query, accents included, and scores against the candidates alone.
+ *
+ * A session is only ever reindexed from a read made under that session's lock, so an
+ * older read cannot overwrite a newer one.
+ */
+@Service
+@Log4j2
+public class SessionSearchIndex {
+    static final int NAME_WEIGHT = 3;
+
+    static final int TEACHER_WEIGHT = 2;
+
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final double PREFIX_PENALTY = 0.5;
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final int LOCK_STRIPES = 64;
+
+    static final int FALLBACK_CANDIDATES = 200;
+
+    private final SessionService sessionService;
+
+    private final boolean enabled;
+
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Set<String>> documents = new ConcurrentHashMap<>();
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final Object loadLock = new Object();
+
+    private volatile boolean complete;
+
+    private volatile Set<Long> changedDuringLoad;
+
+    public SessionSearchIndex(SessionService sessionService,
+                              @Value("${oc.app.searchIndex.enabled:true}") boolean enabled) {
+        this.sessionService = sessionService;
+        this.enabled = enabled;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Indexes every session. Sessions written while loading are read again at the end,
+     * since their batch may have been read before the write.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!this.enabled) {
+            return;
+        }
+
+        synchronized (this.loadLock) {
+            this.complete = false;
+            Set<Long> changed = ConcurrentHashMap.newKeySet();
+            this.changedDuringLoad = changed;
+            try {
+                clear();
+                this.sessionService.exportAll(sessions -> sessions.forEach(this::index));
+                changed.forEach(this::refresh);
+                this.complete = true;
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Session search index not loaded, searching the database: {}", e.toString());
+            } finally {
+                this.changedDuringLoad = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(SessionChangedEvent event) {
+        if (!this.enabled) {
+            return;
+        }
+
+        Set<Long> changed = this.changedDuringLoad;
+        if (changed != null) {
+            changed.add(event.getSessionId());
+        }
+        refresh(event.getSessionId());
+    }
+
+    /**
+     * Returns the ids of matching sessions, best match first.
+     */
+    public List<Long> search(String query, int limit) {
+        if (this.enabled && this.complete) {
+            return rank(query, limit);
+        }
+
+        String longest = tokenize(query).stream().max(Comparator.comparingInt(String::length)).orElse(null);
+        if (longest == null) {
+            return Collections.emptyList();
+        }
+        SessionSearchIndex candidates = new SessionSearchIndex(this.sessionService, false);
+        this.sessionService.findContaining(longest, FALLBACK_CANDIDATES).forEach(candidates::index);
+        return candidates.rank(query, limit);
+    }
+
+    public int size() {
+        return this.documents.size();
+    }
+
+    public boolean isComplete() {
+        return this.enabled && this.complete;
+    }
+
+    private List<Long> rank(String query, int limit) {
+        List<String> tokens = tokenize(query).stream().distinct().collect(Collectors.toList());
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        double total = Math.max(1, this.documents.size());
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            Map<Long, Double> tokenScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> term : this.postings.subMap(token, token + Character.MAX_VALUE).entrySet()) {
+                double idf = Math.log(1 + total / term.getValue().size());
+                double factor = term.getKey().equals(token) ? idf : idf * PREFIX_PENALTY;
+                term.getValue().forEach((id, frequency) -> tokenScores.merge(id, frequency * factor, Math::max));
+            }
+
+            if (i == 0) {
+                scores.putAll(tokenScores);
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reads the session and indexes what was read, under the session's lock: whichever
+     * caller reads last also indexes last.
+     */
+    private void refresh(Long id) {
+        synchronized (this.locks[(int) (id & (LOCK_STRIPES - 1))]) {
+            Session session = this.sessionService.getById(id);
+            if (session == null) {
+                remove(id);
+            } else {
+                index(session);
+            }
+        }
+    }
+
+    synchronized void index(Session session) {
+        remove(session.getId());
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, session.getName(), NAME_WEIGHT);
+        addTerms(frequencies, session.getDescription(), DESCRIPTION_WEIGHT);
+        Teacher teacher = session.getTeacher();
+        if (teacher != null) {
+            addTerms(frequencies, teacher.getFirstName(), TEACHER_WEIGHT);
+            addTerms(frequencies, teacher.getLastName(), TEACHER_WEIGHT);
+        }
+
+        frequencies.forEach((term, frequency) ->
+                this.postings.computeIfAbsent(term, k -> new ConcurrentHashMap<>()).put(session.getId(), frequency));
+        this.documents.put(session.getId(), frequencies.keySet());
+    }
+
+    synchronized void remove(Long id) {
+        Set<String> terms = this.documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            this.postings.computeIfPresent(term, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private synchronized void clear() {
+        this.postings.clear();
+        this.documents.clear();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .replace("œ", "oe")
+                .replace("æ", "ae");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+}
@@ -3,76 +3,334 @@ package com.openclassrooms.starterjwt.services;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionParticipant;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionSeats;
+import com.openclassrooms.starterjwt.repository.TableVersion;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SessionService {
+    private static final SessionCursor FIRST = new SessionCursor(new Date(0L), 0L);
+
+    private static final Date END_OF_TIME = new Date(253402300799000L);
+
+    private static final int PARTICIPANT_BATCH_SIZE = 1000;
+
     private final SessionRepository sessionRepository;
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${oc.app.sessionPageSize}")
+    private int defaultPageSize;
+
+    @Value("${oc.app.sessionMaxPageSize}")
+    private int maxPageSize;
+
+    @Value("${oc.app.bulkParticipationMaxItems}")
+    private int bulkParticipationMaxItems;
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          WaitlistRepository waitlistRepository,
+                          ApplicationEventPublisher eventPublisher) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        if (session.getCapacity() != null && session.getUsers() != null && session.getUsers().size() > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+        Session created = this.sessionRepository.save(session);
+        this.eventPublisher.publishEvent(new SessionChangedEvent(created.getId()));
+        return created;
     }
 
+    @Transactional
     public void delete(Long id) {
+        this.waitlistRepository.removeAllEntries(id);
         this.sessionRepository.deleteById(id);
+        this.eventPublisher.publishEvent(new SessionChangedEvent(id));
     }
 
     public List<Session> findAll() {
         return this.sessionRepository.findAll();
     }
 
+    public List<Session> findAllById(List<Long> ids) {
+        Map<Long, Session> sessions = new HashMap<>();
+        this.sessionRepository.findAllById(ids).forEach(session -> sessions.put(session.getId(), session));
+        return ids.stream().map(sessions::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * At most {@code limit} sessions whose name, description or teacher name contains
+     * {@code term}, ignoring case.
+     */
+    public List<Session> findContaining(String term, int limit) {
+        return this.sessionRepository.findMatching("%" + term.toLowerCase(Locale.ROOT) + "%", PageRequest.of(0, limit));
+    }
+
+    public int resolvePageSize(Integer size) {
+        if (size != null && size < 1) {
+            throw new BadRequestException();
+        }
+        return size == null ? this.defaultPageSize : Math.min(size, this.maxPageSize);
+    }
+
+    public SessionCursor resolveStart(Date from, String cursor) {
+        SessionCursor after = from != null ? new SessionCursor(from, 0L) : FIRST;
+        if (cursor != null) {
+            SessionCursor position = SessionCursor.decode(cursor);
+            if (position.isAfter(after)) {
+                after = position;
+            }
+        }
+        return after;
+    }
+
+    public SessionPage findPage(Date from, Date to, Long teacherId, String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        SessionCursor after = resolveStart(from, cursor);
+
+        List<Session> sessions = this.sessionRepository.findPage(after.getDate(), after.getId(),
+                to != null ? to : END_OF_TIME, teacherId, PageRequest.of(0, limit + 1));
+
+        if (sessions.size() <= limit) {
+            return new SessionPage(sessions, null);
+        }
+        List<Session> page = sessions.subList(0, limit);
+        return new SessionPage(page, SessionCursor.of(page.get(limit - 1)).encode());
+    }
+
+    /**
+     * Hands every session to {@code consumer} in id order, one fetch-sized batch at a time.
+     * The persistence context is cleared between batches so memory stays flat however large
+     * the table is.
+     */
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<List<Session>> consumer) {
+        try (Stream<Session> sessions = this.sessionRepository.streamAll()) {
+            List<Session> batch = new ArrayList<>(SessionRepository.STREAM_FETCH_SIZE);
+            Iterator<Session> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == SessionRepository.STREAM_FETCH_SIZE || !iterator.hasNext()) {
+                    consumer.accept(batch);
+                    batch.clear();
+                    this.entityManager.clear();
+                }
+            }
+        }
+    }
+
+    public Map<Long, List<Long>> findParticipantIds(Collection<Long> sessionIds) {
+        Map<Long, List<Long>> participants = new HashMap<>();
+        List<Long> ids = new ArrayList<>(sessionIds);
+        for (int start = 0; start < ids.size(); start += PARTICIPANT_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start, Math.min(start + PARTICIPANT_BATCH_SIZE, ids.size()));
+            for (SessionParticipant participant : this.sessionRepository.findParticipants(batch)) {
+                participants.computeIfAbsent(participant.getSessionId(), k -> new ArrayList<>()).add(participant.getUserId());
+            }
+        }
+        return participants;
+    }
+
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Tag of the session list variant described by {@code variant}, read from the table.
+     */
+    public String getETag(Object... variant) {
+        TableVersion version = this.sessionRepository.findTableVersion();
+        return version == null ? null : VersionTag.of("sessions", version.getRowCount(), version.getLastUpdated(), variant);
+    }
+
+    public String getETag(Long id) {
+        return this.sessionRepository.findUpdatedAt(id).map(updatedAt -> VersionTag.of("session", id, updatedAt)).orElse(null);
+    }
+
+    /**
+     * Updates the session's own fields under the same row lock as sign-ups. Participants
+     * are left alone: they only change through participate and leave, which check the
+     * capacity, so a stale participant list in the request cannot overbook the session or
+     * drop someone who signed up meanwhile. For the same reason the capacity cannot drop
+     * below the number of participants already seated.
+     */
+    @Transactional
     public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+        Optional<SessionSeats> seats = this.sessionRepository.lockSeats(id);
+        Session existing = this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (seats.isPresent() && session.getCapacity() != null
+                && this.sessionRepository.countParticipants(id) > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+        existing.setName(session.getName())
+                .setDate(session.getDate())
+                .setDescription(session.getDescription())
+                .setCapacity(session.getCapacity())
+                .setTeacher(session.getTeacher());
+        Session updated = this.sessionRepository.save(existing);
+
+        if (seats.isPresent()) {
+            this.sessionRepository.flush();
+            promoteWaitlisted(id, session.getCapacity());
+        }
+        this.eventPublisher.publishEvent(new SessionChangedEvent(id));
+        return updated;
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+    /**
+     * The session row is locked for the whole reservation, so concurrent sign-ups for the
+     * same session are serialized on that single row and the seat count cannot overshoot.
+     */
+    @Transactional
+    public ParticipationStatus participate(Long id, Long userId) {
+        SessionSeats seats = this.sessionRepository.lockSeats(id).orElse(null);
+        if (seats == null || !this.userRepository.existsById(userId)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        boolean alreadyParticipate = this.sessionRepository.countParticipation(id, userId) > 0
+                || this.waitlistRepository.existsBySessionIdAndUserId(id, userId);
+        if (alreadyParticipate) {
             throw new BadRequestException();
         }
 
-        session.getUsers().add(user);
+        this.eventPublisher.publishEvent(new SessionChangedEvent(id));
+        if (hasFreeSeat(id, seats.getCapacity())) {
+            this.sessionRepository.addParticipant(id, userId);
+            this.sessionRepository.touch(id, LocalDateTime.now());
+            return ParticipationStatus.PARTICIPATING;
+        }
 
-        this.sessionRepository.save(session);
+        this.waitlistRepository.save(WaitlistEntry.builder().sessionId(id).userId(userId).build());
+        return ParticipationStatus.WAITLISTED;
     }
 
+    /**
+     * Enrols every user in every session within one transaction. Sessions are locked in
+     * ascending id order so that concurrent bulk requests cannot deadlock each other.
+     */
+    @Transactional
+    public List<ParticipationResult> participateAll(List<Long> sessionIds, List<Long> userIds) {
+        Set<Long> sessions = new TreeSet<>(sessionIds);
+        Set<Long> users = new LinkedHashSet<>(userIds);
+        if (sessions.isEmpty() || (long) sessions.size() * users.size() > this.bulkParticipationMaxItems) {
+            throw new BadRequestException();
+        }
+
+        Set<Long> knownUsers = new HashSet<>(this.userRepository.findExistingIds(users));
+        List<ParticipationResult> results = new ArrayList<>(sessions.size() * users.size());
+        for (Long sessionId : sessions) {
+            SessionSeats seats = this.sessionRepository.lockSeats(sessionId).orElse(null);
+            if (seats == null) {
+                users.forEach(userId -> results.add(new ParticipationResult(sessionId, userId, ParticipationStatus.SESSION_NOT_FOUND)));
+                continue;
+            }
+
+            Set<Long> enrolled = new HashSet<>(this.findParticipantIds(Collections.singletonList(sessionId))
+                    .getOrDefault(sessionId, Collections.emptyList()));
+            long freeSeats = seats.getCapacity() == null ? Long.MAX_VALUE : seats.getCapacity() - enrolled.size();
+            enrolled.addAll(this.waitlistRepository.findUserIds(sessionId));
+
+            List<Long> seated = new ArrayList<>();
+            List<Long> waiting = new ArrayList<>();
+            for (Long userId : users) {
+                ParticipationStatus status;
+                if (!knownUsers.contains(userId)) {
+                    status = ParticipationStatus.USER_NOT_FOUND;
+                } else if (enrolled.contains(userId)) {
+                    status = ParticipationStatus.ALREADY_PARTICIPATING;
+                } else if (seated.size() < freeSeats) {
+                    seated.add(userId);
+                    status = ParticipationStatus.PARTICIPATING;
+                } else {
+                    waiting.add(userId);
+                    status = ParticipationStatus.WAITLISTED;
+                }
+                results.add(new ParticipationResult(sessionId, userId, status));
+            }
+
+            this.sessionRepository.addParticipants(sessionId, seated);
+            this.waitlistRepository.addEntries(sessionId, waiting);
+            if (!seated.isEmpty()) {
+                this.sessionRepository.touch(sessionId, LocalDateTime.now());
+            }
+            this.eventPublisher.publishEvent(new SessionChangedEvent(sessionId));
+        }
+        return results;
+    }
+
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
+        SessionSeats seats = this.sessionRepository.lockSeats(id).orElse(null);
+        if (seats == null) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+        if (this.sessionRepository.removeParticipant(id, userId) > 0) {
+            promoteWaitlisted(id, seats.getCapacity());
+            this.sessionRepository.touch(id, LocalDateTime.now());
+        } else if (this.waitlistRepository.removeEntry(id, userId) == 0) {
             throw new BadRequestException();
         }
+        this.eventPublisher.publishEvent(new SessionChangedEvent(id));
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+    private boolean hasFreeSeat(Long id, Integer capacity) {
+        return capacity == null || this.sessionRepository.countParticipants(id) < capacity;
+    }
 
-        this.sessionRepository.save(session);
+    private void promoteWaitlisted(Long id, Integer capacity) {
+        while (hasFreeSeat(id, capacity)) {
+            Optional<WaitlistEntry> next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id);
+            if (!next.isPresent()) {
+                return;
+            }
+            this.waitlistRepository.delete(next.get());
+            this.sessionRepository.addParticipant(id, next.get().getUserId());
+        }
     }
 }
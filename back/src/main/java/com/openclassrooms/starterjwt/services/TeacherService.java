@@ -1,15 +1,23 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.TableVersion;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
+    @Value("${oc.app.teacherETagTtlMs}")
+    private long eTagTtlMs;
+
+    private volatile CachedTag cachedTag;
+
     public TeacherService(TeacherRepository teacherRepository) {
         this.teacherRepository = teacherRepository;
     }
@@ -21,4 +29,36 @@ public class TeacherService {
     public Teacher findById(Long id) {
         return this.teacherRepository.findById(id).orElse(null);
     }
+
+    /**
+     * Teachers are only written outside the API, so no event can bump a version for
+     * them; the table version is read again at most once per {@code oc.app.teacherETagTtlMs}.
+     */
+    public String getETag() {
+        CachedTag cached = this.cachedTag;
+        long now = System.nanoTime();
+        if (cached != null && now - cached.readAt < TimeUnit.MILLISECONDS.toNanos(this.eTagTtlMs)) {
+            return cached.tag;
+        }
+
+        TableVersion version = this.teacherRepository.findTableVersion();
+        String tag = version == null ? null : VersionTag.of("teachers", version.getRowCount(), version.getLastUpdated());
+        this.cachedTag = new CachedTag(tag, now);
+        return tag;
+    }
+
+    public String getETag(Long id) {
+        return this.teacherRepository.findUpdatedAt(id).map(updatedAt -> VersionTag.of("teacher", id, updatedAt)).orElse(null);
+    }
+
+    private static final class CachedTag {
+        private final String tag;
+
+        private final long readAt;
+
+        CachedTag(String tag, long readAt) {
+            this.tag = tag;
+            this.readAt = readAt;
+        }
+    }
 }
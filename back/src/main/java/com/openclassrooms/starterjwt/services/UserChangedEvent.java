@@ -0,0 +1,16 @@
+package com.openclassrooms.starterjwt.services;
+
+import lombok.Getter;
+
+/**
+ * Published by {@link UserService} whenever a user was deleted, so that anything holding
+ * a copy of that user can drop it.
+ */
+@Getter
+public class UserChangedEvent {
+    private final Long userId;
+
+    public UserChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Strong entity tags derived from updated_at, so conditional requests can be answered
+ * without loading or mapping the entities they describe.
+ */
+final class VersionTag {
+    private VersionTag() {
+    }
+
+    static String of(String kind, long discriminator, LocalDateTime updatedAt) {
+        return "\"" + kind + "-" + Long.toHexString(discriminator) + "-" + Long.toHexString(millis(updatedAt)) + "\"";
+    }
+
+    /**
+     * A tag for one variant of a collection, such as one page of it, so the pages of a
+     * given version get different tags.
+     */
+    static String of(String kind, long discriminator, long version, Object... variant) {
+        return "\"" + kind + "-" + Long.toHexString(discriminator) + "-" + Long.toHexString(version)
+                + "-" + Integer.toHexString(Arrays.hashCode(variant)) + "\"";
+    }
+
+    static String of(String kind, long discriminator, LocalDateTime updatedAt, Object... variant) {
+        return of(kind, discriminator, millis(updatedAt), variant);
+    }
+
+    private static long millis(LocalDateTime updatedAt) {
+        return updatedAt == null ? 0L : updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -1,6 +1,8 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -23,6 +25,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
@@ -108,6 +111,8 @@ public class AuthControllerTest {
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON))
             .andExpect(jsonPath("$.token").value("jwt-token"))
+            .andExpect(jsonPath("$.refreshToken").isNotEmpty())
+            .andExpect(jsonPath("$.refreshTokenExpiresAt").isString())
             .andExpect(jsonPath("$.id").value(1L))
             .andExpect(jsonPath("$.username").value("user@test.com"))
             .andExpect(jsonPath("$.firstName").value("John"))
@@ -123,7 +128,6 @@ public class AuthControllerTest {
         when(authenticationManager.authenticate(any(Authentication.class)))
                 .thenReturn(authenticated(principal));
         when(jwtUtils.generateJwtToken(any(Authentication.class))).thenReturn("jwt-42");
-        when(userRepository.findByEmail("admin@test.com")).thenReturn(Optional.of(admin));
 
         mvc.perform(post("/api/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -136,6 +140,8 @@ public class AuthControllerTest {
             .andExpect(jsonPath("$.firstName").value("Ada"))
             .andExpect(jsonPath("$.lastName").value("Lovelace"))
             .andExpect(jsonPath("$.admin").value(true));
+
+        verify(userRepository, never()).findByEmail(any());
     }
 
     @Test
@@ -149,6 +155,19 @@ public class AuthControllerTest {
             .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void testLogin_serviceUnavailable_hashingSaturated() throws Exception {
+        doThrow(new ServiceUnavailableException())
+                .when(authenticationManager).authenticate(any(Authentication.class));
+
+        mvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson("busy@test.com", "pwd123")))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(content().string("{\"status\":503,\"error\":\"Service Unavailable\"}"));
+    }
+
     // ---------- Tests: /api/auth/register ----------
 
     @Test
@@ -180,6 +199,23 @@ public class AuthControllerTest {
         mvc.perform(post("/api/auth/register")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"email\":\"\",\"firstName\":\"\",\"lastName\":\"\",\"password\":\"\"}"))
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value(400))
+            .andExpect(jsonPath("$.error").value("Bad Request"));
+    }
+
+    @Test
+    public void testRefresh_unauthorized_unknownToken() throws Exception {
+        mvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"unknown\"}"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testLogout_badRequest_withoutToken() throws Exception {
+        mvc.perform(post("/api/auth/logout"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Error: No valid token to revoke!"));
     }
 }
@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.openclassrooms.starterjwt.services.SessionCatalog;
+import com.openclassrooms.starterjwt.services.SessionSearchIndex;
+
+/**
+ * The budgets of {@link EndpointBudgetTest} for the session reads, with the session catalog
+ * and search index enabled as in production, loaded once the data is seeded.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "oc.app.revocation.refreshMs=3600000",
+        "oc.app.refreshTokenPurgeMs=3600000",
+        "oc.app.logging.summaryMs=3600000",
+        "oc.app.sessionCatalog.enabled=true",
+        "oc.app.searchIndex.enabled=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CachedEndpointBudgetTest extends EndpointBudgetTest {
+    @Autowired private SessionCatalog sessionCatalog;
+    @Autowired private SessionSearchIndex sessionSearchIndex;
+
+    @Override
+    void seed() {
+        super.seed();
+        sessionCatalog.load();
+        sessionSearchIndex.load();
+    }
+
+    @Override
+    Stream<DynamicTest> budgets() {
+        return Stream.of(
+                budget("GET /api/session", 0, 192 * KB, () -> get("/api/session").header("Authorization", token)),
+                budget("GET /api/session?unpaged", 0, 192 * KB, () -> get("/api/session").param("unpaged", "true").header("Authorization", token)),
+                budget("GET /api/session/{id}", 0, 160 * KB, () -> get("/api/session/{id}", sessionId).header("Authorization", token)),
+                budget("GET /api/session/search", 0, 192 * KB, () -> get("/api/session/search").param("q", "budget").header("Authorization", token)));
+    }
+}
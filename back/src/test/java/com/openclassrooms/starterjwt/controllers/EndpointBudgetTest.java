@@ -0,0 +1,260 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import com.openclassrooms.starterjwt.logging.SqlStatementCounter;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
+
+/**
+ * SQL statements and bytes allocated per request, for every endpoint, against the real
+ * services and an H2 database of {@value #SESSIONS} sessions with {@value #PARTICIPANTS}
+ * participants each, so an N+1 query or an eager fetch shows up as a budget overrun.
+ *
+ * Each request runs a few times first so caches and lazy initialization are warm; the
+ * budget applies to the most statements and the median bytes seen over the measured runs.
+ * Bytes are those allocated by the request thread, except for asynchronous requests such
+ * as the export, whose response is written on the MVC task executor: those are summed
+ * over all threads. Raise a budget only together with the change that needs it.
+ *
+ * {@link CachedEndpointBudgetTest} holds the budgets of the reads served from the session
+ * catalog and search index.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "oc.app.revocation.refreshMs=3600000",
+        "oc.app.refreshTokenPurgeMs=3600000",
+        "oc.app.logging.summaryMs=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class EndpointBudgetTest {
+    private static final int SESSIONS = 10;
+
+    private static final int PARTICIPANTS = 10;
+
+    private static final int WARMUP_RUNS = 3;
+
+    private static final int MEASURED_RUNS = 7;
+
+    static final long KB = 1024;
+
+    private static final String PASSWORD = "test!1234";
+
+    @Autowired private MockMvc mvc;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private JwtUtils jwtUtils;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private SessionService sessionService;
+    @Autowired private RefreshTokenService refreshTokenService;
+    @Autowired private UserDetailsServiceImpl userDetailsService;
+    @Autowired private SqlStatementCounter sqlStatementCounter;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private String encodedPassword;
+
+    private Long teacherId;
+
+    Long sessionId;
+
+    private Long userId;
+
+    String token;
+
+    @TestFactory
+    public Stream<DynamicTest> testEndpoints_stayWithinBudgets() {
+        seed();
+
+        return budgets();
+    }
+
+    Stream<DynamicTest> budgets() {
+        return Stream.of(
+                budget("POST /api/auth/login", 2, 224 * KB, () -> post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"budget1@test.com\",\"password\":\"" + PASSWORD + "\"}")),
+                budget("POST /api/auth/register", 2, 192 * KB, () -> post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"register" + sequence.incrementAndGet() + "@test.com\",\"firstName\":\"Reg\","
+                                + "\"lastName\":\"Ister\",\"password\":\"" + PASSWORD + "\"}")),
+                budget("POST /api/auth/refresh", 4, 256 * KB, () -> post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + refreshTokenService.issue(userDetailsService.loadUserByUsername("budget1@test.com")).getToken() + "\"}")),
+                budget("POST /api/auth/logout", 2, 192 * KB, () -> post("/api/auth/logout")
+                        .header("Authorization", bearer("budget1@test.com"))),
+
+                budget("GET /api/session", 3, 1408 * KB, () -> get("/api/session").header("Authorization", token)),
+                budget("GET /api/session?unpaged", 3, 1408 * KB, () -> get("/api/session").param("unpaged", "true").header("Authorization", token)),
+                budget("GET /api/session/{id}", 3, 320 * KB, () -> get("/api/session/{id}", sessionId).header("Authorization", token)),
+                budget("GET /api/session/search", 3, 1472 * KB, () -> get("/api/session/search").param("q", "budget").header("Authorization", token)),
+                budget("GET /api/session/export", 2, 1408 * KB, () -> get("/api/session/export").header("Authorization", token)),
+                budget("POST /api/session", 2, 192 * KB, () -> post("/api/session").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(sessionJson("Created"))),
+                budget("PUT /api/session/{id}", 7, 416 * KB, () -> put("/api/session/{id}", sessionId).header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(sessionJson("Updated"))),
+                budget("DELETE /api/session/{id}", 5, 224 * KB, () -> delete("/api/session/{id}", createSession("Deleted").getId())
+                        .header("Authorization", token)),
+                budget("POST /api/session/{id}/participate/{userId}", 7, 288 * KB, () -> {
+                    Long participant = createUser();
+                    return post("/api/session/{id}/participate/{userId}", sessionId, participant).header("Authorization", token);
+                }),
+                budget("DELETE /api/session/{id}/participate/{userId}", 5, 256 * KB, () -> {
+                    Long participant = createUser();
+                    jdbcTemplate.update("insert into PARTICIPATE (session_id, user_id) values (?, ?)", sessionId, participant);
+                    return delete("/api/session/{id}/participate/{userId}", sessionId, participant).header("Authorization", token);
+                }),
+                budget("POST /api/session/participate", 5, 608 * KB, () -> post("/api/session/participate").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sessionIds\":[" + sessionId + "],\"userIds\":[" + createUser() + "," + createUser() + "]}")),
+                budget("POST /api/session/{id}/participate", 5, 864 * KB, () -> post("/api/session/{id}/participate", sessionId).header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userIds\":[" + createUser() + "," + createUser() + "]}")),
+
+                budget("GET /api/teacher", 2, 160 * KB, () -> get("/api/teacher").header("Authorization", token)),
+                budget("GET /api/teacher/{id}", 2, 176 * KB, () -> get("/api/teacher/{id}", teacherId).header("Authorization", token)),
+
+                budget("GET /api/user/{id}", 2, 176 * KB, () -> get("/api/user/{id}", userId).header("Authorization", token)),
+                budget("DELETE /api/user/{id}", 6, 288 * KB, () -> {
+                    Long doomed = createUser();
+                    String email = jdbcTemplate.queryForObject("select email from USERS where id = ?", String.class, doomed);
+                    return delete("/api/user/{id}", doomed).header("Authorization", bearer(email));
+                }));
+    }
+
+    interface RequestFactory {
+        RequestBuilder create() throws Exception;
+    }
+
+    DynamicTest budget(String endpoint, long maxStatements, long maxBytes, RequestFactory requests) {
+        return DynamicTest.dynamicTest(endpoint, () -> {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                perform(requests.create());
+            }
+
+            long statements = 0;
+            long[] allocations = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                RequestBuilder request = requests.create();
+                long statementsBefore = sqlStatementCounter.getTotal();
+                long threadBefore = threadAllocatedBytes();
+                long allBefore = allocatedBytes();
+                boolean async = perform(request);
+                allocations[i] = async ? allocatedBytes() - allBefore : threadAllocatedBytes() - threadBefore;
+                statements = Math.max(statements, sqlStatementCounter.getTotal() - statementsBefore);
+            }
+            Arrays.sort(allocations);
+            long bytes = allocations[MEASURED_RUNS / 2];
+
+            assertTrue(statements <= maxStatements, endpoint + " ran " + statements + " SQL statements, budget " + maxStatements);
+            assertTrue(bytes <= maxBytes, endpoint + " allocated " + bytes / KB + " KB, budget " + maxBytes / KB + " KB");
+        });
+    }
+
+    /**
+     * Performs the request and returns whether it was handled asynchronously.
+     */
+    private boolean perform(RequestBuilder request) throws Exception {
+        MvcResult result = mvc.perform(request).andReturn();
+        boolean async = result.getRequest().isAsyncStarted();
+        if (async) {
+            result = mvc.perform(asyncDispatch(result)).andReturn();
+        }
+        int status = result.getResponse().getStatus();
+        assertTrue(status < 400, "unexpected status " + status + ": " + result.getResponse().getContentAsString());
+        return async;
+    }
+
+    private static long threadAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    void seed() {
+        encodedPassword = passwordEncoder.encode(PASSWORD);
+        jdbcTemplate.update("insert into TEACHERS (first_name, last_name) values ('Budget', 'TEACHER')");
+        teacherId = jdbcTemplate.queryForObject("select max(id) from TEACHERS", Long.class);
+
+        List<Long> participants = new java.util.ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            participants.add(createUser());
+        }
+        userId = participants.get(0);
+        token = bearer("budget1@test.com");
+
+        for (int i = 0; i < SESSIONS; i++) {
+            Session session = createSession("Budget " + i);
+            for (Long participant : participants) {
+                jdbcTemplate.update("insert into PARTICIPATE (session_id, user_id) values (?, ?)", session.getId(), participant);
+            }
+        }
+        sessionId = jdbcTemplate.queryForObject("select min(id) from SESSIONS", Long.class);
+    }
+
+    private Long createUser() {
+        String email = "budget" + sequence.incrementAndGet() + "@test.com";
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'Bud', 'Get', ?, false)", email, encodedPassword);
+        return jdbcTemplate.queryForObject("select id from USERS where email = ?", Long.class, email);
+    }
+
+    private Session createSession(String name) {
+        return sessionService.create(Session.builder()
+                .name(name)
+                .date(new Date(1700000000000L + sequence.incrementAndGet() * 3600000L))
+                .description("Budget session")
+                .capacity(1000)
+                .teacher(Teacher.builder().id(teacherId).build())
+                .build());
+    }
+
+    private String sessionJson(String name) {
+        return "{\"name\":\"" + name + "\",\"date\":\"2024-01-01T10:00:00.000+00:00\",\"teacher_id\":" + teacherId
+                + ",\"description\":\"Budget session\",\"capacity\":1000,\"users\":[]}";
+    }
+
+    private String bearer(String email) {
+        return "Bearer " + jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.builder().username(email).build(), null));
+    }
+}
@@ -1,39 +1,56 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.collection.internal.PersistentBag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionParticipant;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionSeats;
+import com.openclassrooms.starterjwt.repository.TableVersion;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.services.SessionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.transaction.annotation.Transactional;
@@ -52,6 +69,8 @@ public class SessionControllerTest {
     private SessionRepository sessionRepository;
     @MockBean
     private UserRepository userRepository;
+    @MockBean
+    private WaitlistRepository waitlistRepository;
 
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
@@ -63,12 +82,211 @@ public class SessionControllerTest {
         session.setDescription("desc");
         when(sessionRepository.findAll()).thenReturn(List.of(session));
 
-        mvc.perform(get("/api/session"))
+        mvc.perform(get("/api/session").param("unpaged", "true"))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON))
             .andExpect(jsonPath("$[0].id").value(id));
     }
 
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindAll_lazyParticipantsLoadedInOneQuery() throws Exception {
+        when(sessionRepository.findAll()).thenReturn(List.of(buildLazySession(1L), buildLazySession(2L)));
+        when(sessionRepository.findParticipants(List.of(1L, 2L)))
+            .thenReturn(List.of(participant(1L, 10L), participant(1L, 11L), participant(2L, 12L)));
+
+        mvc.perform(get("/api/session").param("unpaged", "true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].users.length()").value(2))
+            .andExpect(jsonPath("$[0].users[1]").value(11L))
+            .andExpect(jsonPath("$[1].users[0]").value(12L));
+
+        verify(sessionRepository, times(1)).findParticipants(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindById_lazyParticipants() throws Exception {
+        when(sessionRepository.findById(5L)).thenReturn(Optional.of(buildLazySession(5L)));
+        when(sessionRepository.findParticipants(List.of(5L))).thenReturn(List.of());
+
+        mvc.perform(get("/api/session/{id}", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users.length()").value(0));
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindById_notModified() throws Exception {
+        when(sessionRepository.findUpdatedAt(5L)).thenReturn(Optional.of(LocalDateTime.of(2025, 1, 1, 10, 0)));
+        when(sessionRepository.findById(5L)).thenReturn(Optional.of(buildSession(5L)));
+
+        String etag = mvc.perform(get("/api/session/{id}", "5"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/session/{id}", "5").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        verify(sessionRepository, times(1)).findById(5L);
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindAll_notModifiedUntilTableChanges() throws Exception {
+        TableVersion version = mock(TableVersion.class);
+        when(version.getLastUpdated()).thenReturn(LocalDateTime.of(2025, 1, 1, 10, 0));
+        when(version.getRowCount()).thenReturn(1L);
+        when(sessionRepository.findTableVersion()).thenReturn(version);
+        when(sessionRepository.findAll()).thenReturn(List.of(buildSession(1L)));
+
+        String etag = mvc.perform(get("/api/session").param("unpaged", "true"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/session").param("unpaged", "true").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+        verify(sessionRepository, times(1)).findAll();
+
+        when(version.getRowCount()).thenReturn(2L);
+        mvc.perform(get("/api/session").param("unpaged", "true").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindAll_pagesHaveTheirOwnETags() throws Exception {
+        TableVersion version = mock(TableVersion.class);
+        when(version.getLastUpdated()).thenReturn(LocalDateTime.of(2025, 1, 1, 10, 0));
+        when(version.getRowCount()).thenReturn(3L);
+        when(sessionRepository.findTableVersion()).thenReturn(version);
+        when(sessionRepository.findPage(any(), any(), any(), isNull(), any())).thenReturn(List.of(buildSession(1L), buildSession(2L)));
+
+        String firstPage = mvc.perform(get("/api/session").param("size", "1"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/session").param("size", "2").header("If-None-Match", firstPage))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(firstPage)));
+        mvc.perform(get("/api/session").param("size", "1").header("If-None-Match", firstPage))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testSearch_rankedResults() throws Exception {
+        Session ashtanga = buildSession(21L);
+        ashtanga.setName("Ashtanga matinal");
+        Session restorative = buildSession(22L);
+        restorative.setDescription("Yoga doux après l'ashtanga");
+        when(sessionRepository.findMatching(eq("%ashtan%"), any())).thenReturn(List.of(ashtanga, restorative));
+        when(sessionRepository.findAllById(List.of(21L, 22L))).thenReturn(List.of(restorative, ashtanga));
+
+        mvc.perform(get("/api/session/search").param("q", "Ashtan"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].id").value(21L))
+            .andExpect(jsonPath("$[1].id").value(22L));
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testExport_jsonArray() throws Exception {
+        when(sessionRepository.streamAll()).thenReturn(Stream.of(buildLazySession(1L), buildLazySession(2L)));
+        when(sessionRepository.findParticipants(List.of(1L, 2L))).thenReturn(List.of(participant(2L, 7L)));
+
+        MvcResult result = mvc.perform(get("/api/session/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[1].users[0]").value(7L));
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testExport_ndjson() throws Exception {
+        when(sessionRepository.streamAll()).thenReturn(Stream.of(buildLazySession(1L), buildLazySession(2L)));
+
+        MvcResult result = mvc.perform(get("/api/session/export").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2L, objectMapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindPage_lastPage() throws Exception {
+        when(sessionRepository.findPage(any(Date.class), eq(0L), any(Date.class), isNull(), eq(PageRequest.of(0, 21))))
+            .thenReturn(List.of(buildSession(1L), buildSession(2L)));
+
+        mvc.perform(get("/api/session"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(2))
+            .andExpect(jsonPath("$.items[1].id").value(2L))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindPage_nextCursorRoundTrip() throws Exception {
+        when(sessionRepository.findPage(any(Date.class), eq(0L), any(Date.class), eq(4L), eq(PageRequest.of(0, 3))))
+            .thenReturn(List.of(buildSession(1L), buildSession(2L), buildSession(3L)));
+
+        String body = mvc.perform(get("/api/session").param("size", "2").param("teacher_id", "4"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(2))
+            .andExpect(jsonPath("$.nextCursor").isString())
+            .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(body).get("nextCursor").asText();
+
+        Date date = Date.from(Instant.parse("2025-01-01T10:00:00Z"));
+        when(sessionRepository.findPage(eq(date), eq(2L), any(Date.class), eq(4L), eq(PageRequest.of(0, 3))))
+            .thenReturn(List.of(buildSession(3L)));
+
+        mvc.perform(get("/api/session").param("size", "2").param("teacher_id", "4").param("cursor", cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(3L))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindPage_sizeIsCapped() throws Exception {
+        when(sessionRepository.findPage(any(Date.class), eq(0L), any(Date.class), isNull(), eq(PageRequest.of(0, 101))))
+            .thenReturn(List.of());
+
+        mvc.perform(get("/api/session").param("size", "5000"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(0));
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindPage_badRequest() throws Exception {
+        mvc.perform(get("/api/session").param("size", "0"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/session").param("cursor", "not-a-cursor"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/session").param("from", "yesterday"))
+            .andExpect(status().isBadRequest());
+    }
+
     private Session buildSession(Long id) {
         return buildSession(id , 1L);
     }
@@ -88,6 +306,40 @@ public class SessionControllerTest {
         return s;
     }
 
+    private Session buildLazySession(Long id) {
+        Session s = buildSession(id);
+        s.setUsers(new PersistentBag());
+        return s;
+    }
+
+    private SessionParticipant participant(Long sessionId, Long userId) {
+        return new SessionParticipant() {
+            @Override
+            public Long getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+
+    private Optional<SessionSeats> seats(Long sessionId, Integer capacity) {
+        return Optional.of(new SessionSeats() {
+            @Override
+            public Long getId() {
+                return sessionId;
+            }
+
+            @Override
+            public Integer getCapacity() {
+                return capacity;
+            }
+        });
+    }
+
     private SessionDto buildSessionDto(Long id) {
         SessionDto dto = new SessionDto();
         dto.setId(id);
@@ -125,7 +377,8 @@ public class SessionControllerTest {
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testFindById_badRequest() throws Exception {
         mvc.perform(get("/api/session/{id}", "abc"))
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isBadRequest())
+            .andExpect(content().json("{\"status\":400,\"error\":\"Bad Request\"}"));
     }
 
     @Test
@@ -166,6 +419,37 @@ public class SessionControllerTest {
             .andExpect(jsonPath("$.description").value("desc updated"));
     }
 
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testCreate_badRequest_invalidBody() throws Exception {
+        SessionDto input = buildSessionDto(null);
+        input.setName(" ");
+
+        mvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(input)))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(content().string("{\"status\":400,\"error\":\"Bad Request\"}"));
+
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testUpdate_notFound_sessionMissing() throws Exception {
+        when(sessionRepository.findById(8L)).thenReturn(Optional.empty());
+
+        mvc.perform(put("/api/session/{id}", "8")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buildSessionDto(null))))
+            .andExpect(status().isNotFound())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(content().string("{\"status\":404,\"error\":\"Not Found\"}"));
+
+        verify(sessionRepository, never()).save(any());
+    }
+
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testUpdate_badRequest_invalidId() throws Exception {
@@ -186,6 +470,7 @@ public class SessionControllerTest {
         mvc.perform(delete("/api/session/{id}", "3"))
             .andExpect(status().isOk());
 
+        verify(waitlistRepository, times(1)).removeAllEntries(3L);
         verify(sessionRepository, times(1)).deleteById(3L);
     }
 
@@ -208,21 +493,54 @@ public class SessionControllerTest {
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testParticipate_ok() throws Exception {
-        Session session = buildSession(11L);
-        User user = new User();
-        user.setId(77L);
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, null));
+        when(userRepository.existsById(77L)).thenReturn(true);
+        when(sessionRepository.addParticipant(11L, 77L)).thenReturn(1);
 
-        when(sessionRepository.findById(11L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(77L)).thenReturn(Optional.of(user));
-        when(sessionRepository.save(session)).thenReturn(session);
+        mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
+            .andExpect(status().isOk());
+
+        verify(sessionRepository, times(1)).addParticipant(11L, 77L);
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testParticipate_seatLeft() throws Exception {
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, 10));
+        when(userRepository.existsById(77L)).thenReturn(true);
+        when(sessionRepository.countParticipants(11L)).thenReturn(9L);
 
         mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
             .andExpect(status().isOk());
 
-        assertTrue(
-            session.getUsers().stream().anyMatch(u -> u.getId().equals(77L)),
-            "L'utilisateur 77 doit être ajouté à la session"
-        );
+        verify(sessionRepository, times(1)).addParticipant(11L, 77L);
+        verify(waitlistRepository, never()).save(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testParticipate_full_waitlisted() throws Exception {
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, 10));
+        when(userRepository.existsById(77L)).thenReturn(true);
+        when(sessionRepository.countParticipants(11L)).thenReturn(10L);
+
+        mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
+            .andExpect(status().isAccepted());
+
+        verify(sessionRepository, never()).addParticipant(any(), any());
+        verify(waitlistRepository, times(1)).save(WaitlistEntry.builder().sessionId(11L).userId(77L).build());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testParticipate_badRequest_alreadyWaitlisted() throws Exception {
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, 10));
+        when(userRepository.existsById(77L)).thenReturn(true);
+        when(waitlistRepository.existsBySessionIdAndUserId(11L, 77L)).thenReturn(true);
+
+        mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
+            .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -235,11 +553,9 @@ public class SessionControllerTest {
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
         public void testParticipate_badRequest_userAlreadyParticipant() throws Exception {
-        Session session = buildSession(11L, 77L);
-        User user = new User(); user.setId(77L);
-
-        when(sessionRepository.findById(11L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(77L)).thenReturn(Optional.of(user));
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, null));
+        when(userRepository.existsById(77L)).thenReturn(true);
+        when(sessionRepository.countParticipation(11L, 77L)).thenReturn(1L);
 
         mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
         .andExpect(status().isBadRequest());
@@ -248,28 +564,109 @@ public class SessionControllerTest {
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testParticipate_notFound_sessionMissing() throws Exception {
-        when(sessionRepository.findById(11L)).thenReturn(Optional.empty());
-        when(userRepository.findById(77L)).thenReturn(Optional.of(new User()));
+        when(sessionRepository.lockSeats(11L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(77L)).thenReturn(true);
 
         mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
             .andExpect(status().isNotFound());
+
+        verify(sessionRepository, never()).addParticipant(any(), any());
     }
 
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testNoLongerParticipate_ok() throws Exception {
-        Session session = buildSession(12L, 88L);
+        when(sessionRepository.lockSeats(12L)).thenReturn(seats(12L, null));
+        when(sessionRepository.removeParticipant(12L, 88L)).thenReturn(1);
+
+        mvc.perform(delete("/api/session/{id}/participate/{userId}", "12", "88"))
+                .andExpect(status().isOk());
+
+        verify(sessionRepository, times(1)).removeParticipant(12L, 88L);
+        verify(sessionRepository, never()).save(any());
+    }
 
-        when(sessionRepository.findById(12L)).thenReturn(java.util.Optional.of(session));
-        when(sessionRepository.save(session)).thenReturn(session);
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testNoLongerParticipate_promotesFirstWaitlisted() throws Exception {
+        WaitlistEntry first = WaitlistEntry.builder().id(1L).sessionId(12L).userId(90L).build();
+        when(sessionRepository.lockSeats(12L)).thenReturn(seats(12L, 10));
+        when(sessionRepository.removeParticipant(12L, 88L)).thenReturn(1);
+        when(sessionRepository.countParticipants(12L)).thenReturn(9L, 10L);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(12L)).thenReturn(Optional.of(first));
 
         mvc.perform(delete("/api/session/{id}/participate/{userId}", "12", "88"))
                 .andExpect(status().isOk());
 
-        assertTrue(
-                session.getUsers().stream().noneMatch(u -> u.getId().equals(88L)),
-                "L'utilisateur 88 doit être retiré de la session"
-        );
+        verify(waitlistRepository, times(1)).delete(first);
+        verify(sessionRepository, times(1)).addParticipant(12L, 90L);
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testNoLongerParticipate_leavesWaitlist() throws Exception {
+        when(sessionRepository.lockSeats(12L)).thenReturn(seats(12L, 10));
+        when(sessionRepository.removeParticipant(12L, 88L)).thenReturn(0);
+        when(waitlistRepository.removeEntry(12L, 88L)).thenReturn(1);
+
+        mvc.perform(delete("/api/session/{id}/participate/{userId}", "12", "88"))
+                .andExpect(status().isOk());
+
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testParticipateAll_batchesSeatsAndWaitlist() throws Exception {
+        when(userRepository.findExistingIds(any())).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, 3));
+        when(sessionRepository.findParticipants(List.of(11L))).thenReturn(List.of(participant(11L, 1L)));
+        when(waitlistRepository.findUserIds(11L)).thenReturn(List.of());
+
+        mvc.perform(post("/api/session/{id}/participate", "11")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userIds\": [1, 2, 3, 4, 5]}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.results[0].status").value("ALREADY_PARTICIPATING"))
+            .andExpect(jsonPath("$.results[1].status").value("PARTICIPATING"))
+            .andExpect(jsonPath("$.results[2].status").value("PARTICIPATING"))
+            .andExpect(jsonPath("$.results[3].status").value("WAITLISTED"))
+            .andExpect(jsonPath("$.results[4].status").value("USER_NOT_FOUND"));
+
+        verify(userRepository, times(1)).findExistingIds(any());
+        verify(sessionRepository, times(1)).addParticipants(11L, List.of(2L, 3L));
+        verify(waitlistRepository, times(1)).addEntries(11L, List.of(4L));
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testParticipateAll_manySessions() throws Exception {
+        when(userRepository.findExistingIds(any())).thenReturn(List.of(1L));
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, null));
+        when(sessionRepository.lockSeats(12L)).thenReturn(Optional.empty());
+
+        mvc.perform(post("/api/session/participate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sessionIds\": [12, 11], \"userIds\": [1]}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.results[0].sessionId").value(11L))
+            .andExpect(jsonPath("$.results[0].status").value("PARTICIPATING"))
+            .andExpect(jsonPath("$.results[1].sessionId").value(12L))
+            .andExpect(jsonPath("$.results[1].status").value("SESSION_NOT_FOUND"));
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testParticipateAll_badRequest() throws Exception {
+        mvc.perform(post("/api/session/participate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userIds\": [1]}"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/session/{id}/participate", "11")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userIds\": []}"))
+            .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -282,8 +679,8 @@ public class SessionControllerTest {
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testParticipate_notFound_userMissing() throws Exception {
-        when(sessionRepository.findById(11L)).thenReturn(Optional.of(buildSession(11L)));
-        when(userRepository.findById(77L)).thenReturn(Optional.empty());
+        when(sessionRepository.lockSeats(11L)).thenReturn(seats(11L, null));
+        when(userRepository.existsById(77L)).thenReturn(false);
 
         mvc.perform(post("/api/session/{id}/participate/{userId}", "11", "77"))
         .andExpect(status().isNotFound());
@@ -293,10 +690,8 @@ public class SessionControllerTest {
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testNoLongerParticipate_badRequest_userNotParticipant() throws Exception {
         // Session sans l'utilisateur 88
-        Session session = buildSession(12L);
-        session.setUsers(new ArrayList<>()); // vide
-
-        when(sessionRepository.findById(12L)).thenReturn(Optional.of(session));
+        when(sessionRepository.lockSeats(12L)).thenReturn(seats(12L, null));
+        when(sessionRepository.removeParticipant(12L, 88L)).thenReturn(0);
 
         mvc.perform(delete("/api/session/{id}/participate/{userId}", "12", "88"))
         .andExpect(status().isBadRequest());
@@ -305,7 +700,7 @@ public class SessionControllerTest {
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testNoLongerParticipate_notFound_sessionMissing() throws Exception {
-        when(sessionRepository.findById(12L)).thenReturn(Optional.empty());
+        when(sessionRepository.lockSeats(12L)).thenReturn(Optional.empty());
 
         mvc.perform(delete("/api/session/{id}/participate/{userId}", "12", "88"))
         .andExpect(status().isNotFound());
@@ -1,9 +1,14 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -11,6 +16,7 @@ import java.util.List;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.TableVersion;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.services.TeacherService;
 
@@ -91,6 +97,18 @@ public class TeacherControllerTest {
             .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindById_notModified() throws Exception {
+        when(teacherRepository.findUpdatedAt(5L)).thenReturn(java.util.Optional.of(LocalDateTime.of(2025, 1, 1, 10, 0)));
+
+        String etag = mvc.perform(get("/api/teacher/{id}", "5"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/teacher/{id}", "5").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+    }
+
     // --------- tests: GET /api/teacher ---------
 
     @Test
@@ -131,4 +149,24 @@ public class TeacherControllerTest {
             .andExpect(content().contentType(MediaType.APPLICATION_JSON))
             .andExpect(content().json("[]"));
     }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindAll_notModified() throws Exception {
+        TableVersion version = mock(TableVersion.class);
+        when(version.getLastUpdated()).thenReturn(LocalDateTime.of(2025, 1, 1, 10, 0));
+        when(version.getRowCount()).thenReturn(2L);
+        when(teacherRepository.findTableVersion()).thenReturn(version);
+
+        String etag = mvc.perform(get("/api/teacher"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/teacher").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", etag));
+
+        verify(teacherRepository, times(1)).findAll();
+        verify(teacherMapper, times(1)).toDto(anyList());
+    }
 }
@@ -1,17 +1,23 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.UserDto;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.PrincipalCache;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +25,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -32,6 +39,8 @@ public class UserControllerTest {
 
     @Autowired private MockMvc mvc;
     @Autowired private ObjectMapper objectMapper;
+    @Autowired private JwtUtils jwtUtils;
+    @Autowired private PrincipalCache principalCache;
 
     @MockBean private UserRepository userRepository;
     @MockBean private UserMapper userMapper;
@@ -61,6 +70,23 @@ public class UserControllerTest {
 
     // ---------- GET /api/user/{id} ----------
 
+    @Test
+    @WithMockUser(username = "user@test.com", roles = {"USER"})
+    public void testFindById_notModified() throws Exception {
+        when(userRepository.findUpdatedAt(5L)).thenReturn(Optional.of(LocalDateTime.of(2025, 1, 1, 10, 0)));
+        when(userRepository.findById(5L)).thenReturn(Optional.of(buildUser(5L, "user@test.com", "John", "Doe", false)));
+
+        String etag = mvc.perform(get("/api/user/{id}", "5"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/user/{id}", "5").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        verify(userRepository, times(1)).findById(5L);
+        verify(userMapper, times(1)).toDto(any(User.class));
+    }
+
     @Test
     @WithMockUser(username = "user@test.com", roles = {"USER"})
     public void testFindById_ok() throws Exception {
@@ -141,4 +167,44 @@ public class UserControllerTest {
 
         verify(userRepository, never()).deleteById(anyLong());
     }
+
+    // ---------- principal cache ----------
+
+    @Test
+    public void testBearerRequests_loadPrincipalOncePerTtl() throws Exception {
+        User entity = buildUser(9L, "cached@test.com", "Cache", "Hit", false);
+        when(userRepository.findByEmail("cached@test.com")).thenReturn(Optional.of(entity));
+        when(userRepository.findById(9L)).thenReturn(Optional.of(entity));
+        String token = bearer("cached@test.com");
+        long hits = principalCache.getHits();
+
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(get("/api/user/{id}", "9").header("Authorization", token))
+                .andExpect(status().isOk());
+        }
+
+        verify(userRepository, times(1)).findByEmail("cached@test.com");
+        assertEquals(hits + 2, principalCache.getHits());
+
+        mvc.perform(delete("/api/user/{id}", "9").header("Authorization", token))
+            .andExpect(status().isOk());
+        when(userRepository.findByEmail("cached@test.com")).thenReturn(Optional.empty());
+
+        mvc.perform(get("/api/user/{id}", "9").header("Authorization", token))
+            .andExpect(status().isUnauthorized());
+        verify(userRepository, times(1)).findByEmail("cached@test.com");
+
+        AtomicInteger loads = new AtomicInteger();
+        principalCache.get("cached@test.com", email -> {
+            loads.incrementAndGet();
+            return UserDetailsImpl.builder().id(9L).username(email).build();
+        });
+        principalCache.invalidate("cached@test.com");
+        assertEquals(1, loads.get());
+    }
+
+    private String bearer(String email) {
+        UserDetailsImpl principal = UserDetailsImpl.builder().username(email).build();
+        return "Bearer " + jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+    }
 }
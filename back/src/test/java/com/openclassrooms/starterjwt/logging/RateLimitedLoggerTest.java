@@ -0,0 +1,87 @@
+package com.openclassrooms.starterjwt.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class RateLimitedLoggerTest {
+    private Logger logger;
+
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    public void setUp() {
+        logger = (Logger) LoggerFactory.getLogger(RateLimitedLoggerTest.class.getName() + "." + System.nanoTime());
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void testError_logsPermitsThenSamplesAndReportsSuppressed() {
+        RateLimitedLogger rateLimited = new RateLimitedLogger(logger, 3, 60000, 100);
+
+        for (int i = 0; i < 203; i++) {
+            rateLimited.error("token", "Invalid token {}", i);
+        }
+
+        List<String> messages = appender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+        assertEquals(5, messages.size());
+        assertEquals("Invalid token 2", messages.get(2));
+        assertEquals("Invalid token 102 (99 similar messages suppressed)", messages.get(3));
+        assertEquals("Invalid token 202 (99 similar messages suppressed)", messages.get(4));
+        assertEquals(198, budget("token").getSuppressed());
+        assertEquals(0, budget("token").drainPending());
+    }
+
+    @Test
+    public void testError_keysHaveSeparateBudgets() {
+        RateLimitedLogger rateLimited = new RateLimitedLogger(logger, 1, 60000, 0);
+
+        rateLimited.warn("expired", "Expired");
+        rateLimited.warn("expired", "Expired");
+        rateLimited.warn("expired", "Expired");
+        rateLimited.warn("malformed", "Malformed");
+
+        assertEquals(2, appender.list.size());
+        assertEquals(2, budget("expired").getSuppressed());
+        assertEquals(2, budget("expired").drainPending());
+        assertEquals(0, budget("malformed").getSuppressed());
+    }
+
+    @Test
+    public void testInfo_newWindowRestoresPermitsAndReportsPending() throws InterruptedException {
+        RateLimitedLogger rateLimited = new RateLimitedLogger(logger, 1, 50, 0);
+
+        rateLimited.info("window", "First");
+        rateLimited.info("window", "Dropped");
+        Thread.sleep(80);
+        rateLimited.info("window", "Second");
+
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(1).getFormattedMessage().endsWith("(1 similar messages suppressed)"));
+    }
+
+    private RateLimitedLogger.Budget budget(String key) {
+        return RateLimitedLogger.getBudgets().stream()
+                .filter(budget -> budget.getKey().equals(logger.getName() + ":" + key))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SessionMapperTest {
+    private static final int PARTICIPANTS = 80;
+
+    @Autowired private SessionMapper sessionMapper;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long teacherId;
+    private List<Long> userIds;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        jdbcTemplate.update("insert into TEACHERS (first_name, last_name) values ('Mapper', 'Teacher')");
+        teacherId = jdbcTemplate.queryForObject("select max(id) from TEACHERS", Long.class);
+        String batch = Long.toString(System.nanoTime());
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'Mapped', ?, 'secret', false)",
+                    "mapper" + batch + "-" + i + "@test.com", batch);
+        }
+        userIds = jdbcTemplate.queryForList("select id from USERS where last_name = ? order by id", Long.class, batch);
+    }
+
+    @Test
+    public void testToEntity_queryCountDoesNotGrowWithParticipants() {
+        long one = countStatements(userIds.subList(0, 1));
+        long all = countStatements(userIds);
+
+        assertEquals(one, all);
+        assertTrue(all <= 2, "expected one teacher and one user query, got " + all);
+    }
+
+    @Test
+    public void testToEntity_keepsOrderAndDropsDuplicates() {
+        List<Long> ids = new ArrayList<>(userIds.subList(0, 3));
+        ids.add(ids.get(0));
+
+        Session session = sessionMapper.toEntity(buildSessionDto(ids));
+
+        assertEquals(ids.subList(0, 3), session.getUsers().stream().map(User::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testToEntity_unknownUser() {
+        SessionDto dto = buildSessionDto(Arrays.asList(userIds.get(0), -1L));
+
+        assertThrows(BadRequestException.class, () -> sessionMapper.toEntity(dto));
+    }
+
+    private long countStatements(List<Long> ids) {
+        statistics.clear();
+        Session session = sessionMapper.toEntity(buildSessionDto(ids));
+        assertEquals(ids.size(), session.getUsers().size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private SessionDto buildSessionDto(List<Long> users) {
+        SessionDto dto = new SessionDto();
+        dto.setName("Mapped");
+        dto.setDate(new Date());
+        dto.setDescription("desc");
+        dto.setTeacher_id(teacherId);
+        dto.setUsers(users);
+        return dto;
+    }
+}
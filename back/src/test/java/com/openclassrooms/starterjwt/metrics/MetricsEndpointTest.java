@@ -0,0 +1,60 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@ActiveProfiles("test")
+public class MetricsEndpointTest {
+    @Autowired private MockMvc mvc;
+    @Autowired private JwtUtils jwtUtils;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testPrometheus_onlyAdminsCanScrapeHistogramsAndGauges() throws Exception {
+        String user = token("metrics-user@test.com", false);
+        String admin = token("metrics-admin@test.com", true);
+
+        mvc.perform(get("/api/session").header("Authorization", user))
+            .andExpect(status().isOk());
+
+        mvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/prometheus").header("Authorization", user))
+            .andExpect(status().isForbidden());
+        mvc.perform(get("/actuator/prometheus").header("Authorization", admin))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\"")))
+            .andExpect(content().string(containsString("service_calls_seconds_bucket{class=\"SessionService\",exception=\"none\",method=\"findPage\"")))
+            .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+            .andExpect(content().string(containsString("hikaricp_connections_active")))
+            .andExpect(content().string(containsString("jwt_cache_total{result=\"miss\",}")))
+            .andExpect(content().string(containsString("sql_statements_total{kind=\"select\",}")));
+
+        mvc.perform(get("/actuator/health"))
+            .andExpect(status().isOk());
+    }
+
+    private String token(String email, boolean admin) {
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'Met', 'Rics', 'secret', ?)", email, admin);
+        return "Bearer " + jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.builder().username(email).admin(admin).build(), null));
+    }
+}
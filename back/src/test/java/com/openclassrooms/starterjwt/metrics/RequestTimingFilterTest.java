@@ -0,0 +1,110 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "oc.app.requestTiming.sampleEvery=0",
+        "oc.app.requestTiming.slowMs=0"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RequestTimingFilterTest {
+    @Autowired private MockMvc mvc;
+    @Autowired private JwtUtils jwtUtils;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Logger logger;
+
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    public void setUp() {
+        logger = (Logger) LoggerFactory.getLogger(RequestTimingFilter.class);
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void testServerTiming_breaksDownAdminRequestsByPhase() throws Exception {
+        jdbcTemplate.update("insert into TEACHERS (first_name, last_name) values ('Tim', 'ING')");
+        jdbcTemplate.update("insert into SESSIONS (name, description, date, teacher_id) values ('Timed', 'Timed session', now(), (select max(id) from TEACHERS))");
+
+        mvc.perform(get("/api/session").header("Authorization", token("timing-admin@test.com", true)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(RequestTimingFilter.SERVER_TIMING, allOf(
+                    containsString("auth;dur="), containsString("service;dur="), containsString("db;dur="),
+                    containsString("mapper;dur="), containsString("json;dur="), containsString("total;dur="))));
+
+        mvc.perform(get("/api/session").header("Authorization", token("timing-user@test.com", false)))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(RequestTimingFilter.SERVER_TIMING));
+    }
+
+    @Test
+    public void testServerTiming_isAddedToAdminResponsesWithoutABody() throws Exception {
+        jdbcTemplate.update("insert into TEACHERS (first_name, last_name) values ('Tim', 'ING')");
+        jdbcTemplate.update("insert into SESSIONS (name, description, date, teacher_id, updated_at) values ('Bodiless', 'Bodiless session', now(), (select max(id) from TEACHERS), now())");
+        Long id = jdbcTemplate.queryForObject("select max(id) from SESSIONS", Long.class);
+        String admin = token("timing-bodiless@test.com", true);
+
+        String etag = mvc.perform(get("/api/session/" + id).header("Authorization", admin))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/session/" + id).header("Authorization", admin).header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(RequestTimingFilter.SERVER_TIMING, containsString("total;dur=")));
+
+        mvc.perform(delete("/api/session/" + id).header("Authorization", admin))
+            .andExpect(status().isOk())
+            .andExpect(header().string(RequestTimingFilter.SERVER_TIMING, containsString("total;dur=")));
+    }
+
+    @Test
+    public void testSlowRequest_isLoggedWithTheBreakdown() throws Exception {
+        mvc.perform(get("/api/teacher").header("Authorization", token("timing-slow@test.com", false)))
+            .andExpect(status().isOk());
+
+        assertTrue(appender.list.stream().map(ILoggingEvent::getFormattedMessage)
+                .anyMatch(message -> message.startsWith("Slow request GET /api/teacher returned 200 after ")
+                        && message.contains("db;dur=") && message.contains("total;dur=")),
+                appender.list.toString());
+    }
+
+    private String token(String email, boolean admin) {
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'Tim', 'Ing', 'secret', ?)", email, admin);
+        return "Bearer " + jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.builder().username(email).admin(admin).build(), null));
+    }
+}
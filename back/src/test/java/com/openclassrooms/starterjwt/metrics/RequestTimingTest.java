@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.starterjwt.metrics.RequestTiming.Phase;
+
+public class RequestTimingTest {
+    @Test
+    public void testNestedPhase_isTimedOnce() {
+        RequestTiming timing = new RequestTiming(false);
+
+        timing.enter(Phase.SERVICE);
+        timing.enter(Phase.SERVICE);
+        timing.exit(Phase.SERVICE);
+        assertEquals(0, timing.getCalls(Phase.SERVICE));
+        timing.exit(Phase.SERVICE);
+        timing.enter(Phase.DB);
+        timing.exit(Phase.DB);
+        timing.enter(Phase.DB);
+        timing.exit(Phase.DB);
+
+        assertEquals(1, timing.getCalls(Phase.SERVICE));
+        assertEquals(2, timing.getCalls(Phase.DB));
+        String header = timing.format();
+        assertTrue(header.matches("service;dur=\\d+\\.\\d{3}, db;dur=\\d+\\.\\d{3};desc=\"2 calls\", total;dur=\\d+\\.\\d{3}"), header);
+    }
+
+    @Test
+    public void testRunningPhase_countsUpToNow() {
+        RequestTiming timing = new RequestTiming(false);
+
+        timing.enter(Phase.JSON);
+
+        assertTrue(timing.format().startsWith("json;dur="));
+        assertEquals(0, timing.getCalls(Phase.JSON));
+    }
+
+    @Test
+    public void testStaticHooks_doNothingOutsideARequest() {
+        RequestTiming.begin(Phase.DB);
+        RequestTiming.end(Phase.DB);
+
+        assertEquals(null, RequestTiming.current());
+    }
+}
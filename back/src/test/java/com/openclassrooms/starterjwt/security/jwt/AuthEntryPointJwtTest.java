@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+public class AuthEntryPointJwtTest {
+    private static final long ALLOCATION_BUDGET_BYTES = 1024;
+
+    private final AuthEntryPointJwt entryPoint = new AuthEntryPointJwt();
+
+    private final InsufficientAuthenticationException exception =
+            new InsufficientAuthenticationException("Full authentication is required to access this resource");
+
+    @Test
+    public void testCommence_writesUnauthorizedBody() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+        request.setServletPath("/api/\"session\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        entryPoint.commence(request, response, exception);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("{\"status\":401,\"error\":\"Unauthorized\",\"message\":\"Full authentication is required to access this resource\","
+                + "\"path\":\"/api/\\\"session\\\"\"}", response.getContentAsString());
+    }
+
+    @Test
+    public void testCommence_staysWithinAllocationBudget() throws Exception {
+        Logger logger = (Logger) org.slf4j.LoggerFactory.getLogger(AuthEntryPointJwt.class);
+        Level level = logger.getLevel();
+        logger.setLevel(Level.OFF);
+        try {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+            request.setServletPath("/api/session");
+            HttpServletResponse response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+                @Override
+                public ServletOutputStream getOutputStream() {
+                    return DISCARD;
+                }
+            };
+
+            long perResponse = allocatedBytesPerCall(() -> entryPoint.commence(request, response, exception));
+            assertTrue(perResponse < ALLOCATION_BUDGET_BYTES, "allocated " + perResponse + " bytes per 401");
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static long allocatedBytesPerCall(Call call) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 20000; i++) {
+            call.run();
+        }
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 10000; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 10000;
+    }
+
+    private static final ServletOutputStream DISCARD = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+}
@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {"oc.app.jwtStateless=true", "oc.app.jwtStatelessExpirationMs=120000"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AuthTokenFilterStatelessTest {
+
+    @Autowired private MockMvc mvc;
+    @Autowired private JwtUtils jwtUtils;
+
+    @MockBean private UserRepository userRepository;
+
+    private final UserDetailsImpl principal = UserDetailsImpl.builder()
+            .id(12L)
+            .username("stateless@test.com")
+            .firstName("Ada")
+            .lastName("Lovelace")
+            .admin(true)
+            .build();
+
+    @Test
+    public void testGenerateJwtToken_carriesPrincipalWithShortLifetime() {
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+
+        UserDetailsImpl parsed = jwtUtils.getPrincipalFromJwtToken(token);
+        assertEquals(12L, parsed.getId());
+        assertEquals("stateless@test.com", parsed.getUsername());
+        assertEquals("Ada", parsed.getFirstName());
+        assertEquals("Lovelace", parsed.getLastName());
+        assertTrue(parsed.getAdmin());
+
+        Claims claims = Jwts.parser().setSigningKey("openclassrooms").parseClaimsJws(token).getBody();
+        assertTrue(claims.getExpiration().getTime() - claims.getIssuedAt().getTime() <= 120000);
+    }
+
+    @Test
+    public void testFilter_authenticatesWithoutDatabase() throws Exception {
+        User user = new User();
+        user.setId(12L);
+        user.setEmail("stateless@test.com");
+        user.setFirstName("Ada");
+        user.setLastName("Lovelace");
+        user.setPassword("secret");
+        when(userRepository.findById(12L)).thenReturn(Optional.of(user));
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+
+        mvc.perform(get("/api/user/{id}", "12").header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    public void testParseJwtToken_verifiesOnceThenAnswersFromCache() {
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+        long hits = jwtUtils.getCacheHits();
+        long misses = jwtUtils.getCacheMisses();
+
+        assertEquals("stateless@test.com", jwtUtils.parseJwtToken(token).getSubject());
+        assertEquals("stateless@test.com", jwtUtils.getUserNameFromJwtToken(token));
+        assertEquals(misses + 1, jwtUtils.getCacheMisses());
+        assertEquals(hits + 1, jwtUtils.getCacheHits());
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertNull(jwtUtils.parseJwtToken(tampered));
+        assertNull(jwtUtils.parseJwtToken(tampered));
+        assertEquals(misses + 3, jwtUtils.getCacheMisses());
+    }
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+@SpringBootTest(properties = "oc.app.jwtCache.maxEntries=2")
+@ActiveProfiles("test")
+public class JwtUtilsCacheTest {
+
+    @Autowired private JwtUtils jwtUtils;
+
+    @Test
+    public void testParseJwtToken_evictsATokenUnusedSinceCachedWhenFull() {
+        String first = token("first@test.com");
+        String second = token("second@test.com");
+        String third = token("third@test.com");
+
+        jwtUtils.parseJwtToken(first);
+        jwtUtils.parseJwtToken(second);
+        jwtUtils.parseJwtToken(first);
+        jwtUtils.parseJwtToken(third);
+        assertEquals(2, jwtUtils.getCacheSize());
+
+        long hits = jwtUtils.getCacheHits();
+        long misses = jwtUtils.getCacheMisses();
+        assertNotNull(jwtUtils.parseJwtToken(first));
+        assertEquals(hits + 1, jwtUtils.getCacheHits());
+        assertNotNull(jwtUtils.parseJwtToken(second));
+        assertEquals(misses + 1, jwtUtils.getCacheMisses());
+        assertEquals(2, jwtUtils.getCacheSize());
+    }
+
+    @Test
+    public void testParseJwtToken_staysBoundedUnderConcurrentMisses() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            tokens.add(token("concurrent" + i + "@test.com"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < tokens.size(); i++) {
+                        assertNotNull(jwtUtils.parseJwtToken(tokens.get((i + offset * 8) % tokens.size())));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(jwtUtils.getCacheSize() <= 2, "cache size " + jwtUtils.getCacheSize());
+    }
+
+    private String token(String email) {
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.builder().username(email).build(), null));
+    }
+}
@@ -0,0 +1,68 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {"oc.app.rateLimit.enabled=true", "oc.app.rateLimit.rules=POST /api/auth/login=ip:2/60,GET /api/teacher=ip:1/60"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RateLimitFilterTest {
+    @Autowired private MockMvc mvc;
+    @Autowired private JwtUtils jwtUtils;
+
+    @Test
+    public void testLogin_tooManyRequestsOnceBucketIsEmpty() throws Exception {
+        String body = "{\"email\":\"nobody@test.com\",\"password\":\"wrong\"}";
+        for (int i = 0; i < 2; i++) {
+            mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isUnauthorized());
+        }
+
+        mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "30"))
+            .andExpect(jsonPath("$.message").value("Error: Too many requests!"));
+
+        mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(body)
+                .with(request -> {
+                    request.setRemoteAddr("10.0.0.9");
+                    return request;
+                }))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testPerIpLimit_rejectsBeforeVerifyingTheToken() throws Exception {
+        long misses = jwtUtils.getCacheMisses();
+        mvc.perform(get("/api/teacher").header("Authorization", "Bearer not-a-token")
+                .with(request -> {
+                    request.setRemoteAddr("10.0.0.20");
+                    return request;
+                }))
+            .andExpect(status().isUnauthorized());
+        assertEquals(misses + 1, jwtUtils.getCacheMisses());
+
+        mvc.perform(get("/api/teacher").header("Authorization", "Bearer not-a-token")
+                .with(request -> {
+                    request.setRemoteAddr("10.0.0.20");
+                    return request;
+                }))
+            .andExpect(status().isTooManyRequests());
+        assertEquals(misses + 1, jwtUtils.getCacheMisses());
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"oc.app.rateLimit.enabled=true", "oc.app.rateLimit.rules=GET /actuator/health=ip:2/60"})
+@ActiveProfiles("test")
+public class RateLimitForwardedForTest {
+    @Autowired private TestRestTemplate restTemplate;
+
+    @Test
+    public void testPerIpLimit_keysOnTheClientBehindATrustedProxy() {
+        assertEquals(HttpStatus.OK, health("203.0.113.1"));
+        assertEquals(HttpStatus.OK, health("203.0.113.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, health("203.0.113.1"));
+
+        assertEquals(HttpStatus.OK, health("203.0.113.2"));
+    }
+
+    private HttpStatus health(String client) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", client);
+        return restTemplate.exchange("/actuator/health", HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode();
+    }
+}
@@ -0,0 +1,74 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testTokenBucket_allowsBurstThenRefillsAtRate() {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        TokenBucket bucket = new TokenBucket(3, 3 * second, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(second, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(second));
+        assertTrue(bucket.tryAcquire(second) > 0);
+        assertTrue(bucket.isFull(3 * second + second));
+    }
+
+    @Test
+    public void testParse_readsMethodPatternKeyAndLimit() {
+        RateLimitRule rule = RateLimitRule.parse(" POST /api/auth/login = ip:10/60 ");
+
+        assertEquals("POST /api/auth/login=ip:10/60", rule.toString());
+        assertTrue(rule.matches("POST", "/api/auth/login"));
+        assertEquals(false, rule.matches("GET", "/api/auth/login"));
+        assertTrue(RateLimitRule.parse("/api/**=user:5/1").matches("GET", "/api/session/1"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitRule.parse("/api/**=client:5/1"));
+    }
+
+    @Test
+    public void testAcquire_limitsPerClientAndSharesOverflowBucket() {
+        RateLimiter limiter = new RateLimiter(true, new String[] {"/api/**=ip:2/60", "/api/**=user:100/60"}, 2);
+
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.1", null));
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.1", null));
+        assertTrue(limiter.acquire("GET", "/api/session", "10.0.0.1", null) > 0);
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.2", "a@test.com"));
+        assertEquals(2, limiter.size());
+
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.3", null));
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.4", null));
+        assertTrue(limiter.acquire("GET", "/api/session", "10.0.0.5", null) > 0);
+        assertEquals(2, limiter.size());
+        assertEquals(2, limiter.getRejected());
+        assertEquals(0, limiter.acquire("GET", "/other", "10.0.0.1", null));
+    }
+
+    @Test
+    public void testAcquire_replacesAnIdleBucketBeforeSharingOverflow() throws Exception {
+        RateLimiter limiter = new RateLimiter(true, new String[] {"/api/**=ip:1/1"}, 1);
+
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.1", null));
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.2", null));
+        assertTrue(limiter.acquire("GET", "/api/session", "10.0.0.3", null) > 0);
+        Thread.sleep(1100);
+
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.4", null));
+        assertTrue(limiter.acquire("GET", "/api/session", "10.0.0.4", null) > 0);
+        assertEquals(1, limiter.size());
+
+        assertEquals(0, limiter.acquire("GET", "/api/session", "10.0.0.5", null));
+        assertTrue(limiter.acquire("GET", "/api/session", "10.0.0.6", null) > 0);
+        limiter.sweep();
+        assertEquals(1, limiter.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+public class BoundedPasswordEncoderTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final PasswordEncoder slow = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "hashed-" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            await();
+            return encodedPassword.equals("hashed-" + rawPassword);
+        }
+    };
+
+    @Test
+    public void testEncode_rejectsOnceThreadsAndQueueAreFull() throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1, 5000);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        waitUntil(() -> encoder.getActiveCount() == 1);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("second", "hashed-second"));
+        waitUntil(() -> encoder.getQueueDepth() == 1);
+
+        assertThrows(ServiceUnavailableException.class, () -> encoder.encode("third"));
+        assertEquals(1, encoder.getRejected());
+
+        release.countDown();
+        assertEquals("hashed-first", running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, encoder.getHashCount());
+        assertTrue(encoder.getMaxHashTimeNanos() > 0);
+        encoder.shutdown();
+    }
+
+    @Test
+    public void testMatches_givesUpAfterTimeout() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1, 50);
+
+        assertThrows(ServiceUnavailableException.class, () -> encoder.matches("pwd", "hashed-pwd"));
+        assertEquals(1, encoder.getRejected());
+        encoder.shutdown();
+    }
+
+    private void await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class PasswordCostCalibratorTest {
+
+    @Test
+    public void testCalibrate_staysWithinBounds() {
+        assertEquals(4, PasswordCostCalibrator.calibrate(0, 4, 6));
+        assertEquals(6, PasswordCostCalibrator.calibrate(60000, 4, 6));
+    }
+
+    @Test
+    public void testCreateEncoder_verifiesLegacyHashesAndFlagsThemForUpgrade() {
+        PasswordEncoder encoder = new PasswordCostCalibrator(5, 250, 10, 16).createEncoder();
+        String legacy = new BCryptPasswordEncoder(4).encode("test!1234");
+        String lowerCost = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("test!1234");
+        String current = encoder.encode("test!1234");
+
+        assertTrue(current.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.matches("test!1234", legacy));
+        assertTrue(encoder.matches("test!1234", lowerCost));
+        assertTrue(encoder.matches("test!1234", current));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertTrue(encoder.upgradeEncoding(lowerCost));
+        assertFalse(encoder.upgradeEncoding(current));
+    }
+
+    @Test
+    public void testCreateEncoder_keepsHashesOfAHigherCost() {
+        String higherCost = new PasswordCostCalibrator(6, 250, 10, 16).createEncoder().encode("test!1234");
+        PasswordEncoder encoder = new PasswordCostCalibrator(5, 250, 10, 16).createEncoder();
+
+        assertTrue(encoder.matches("test!1234", higherCost));
+        assertFalse(encoder.upgradeEncoding(higherCost));
+    }
+}
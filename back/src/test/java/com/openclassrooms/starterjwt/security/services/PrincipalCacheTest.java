@@ -0,0 +1,106 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.starterjwt.services.UserChangedEvent;
+
+public class PrincipalCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, UserDetailsImpl> loader = email -> {
+        loads.incrementAndGet();
+        return UserDetailsImpl.builder().id((long) email.length()).username(email).build();
+    };
+
+    @Test
+    public void testGet_cachesWithinTtl() {
+        PrincipalCache cache = new PrincipalCache(60000, 10);
+
+        UserDetailsImpl first = cache.get("a@test.com", loader);
+        UserDetailsImpl second = cache.get("a@test.com", loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    public void testGet_reloadsAfterTtl() {
+        PrincipalCache cache = new PrincipalCache(0, 10);
+
+        cache.get("a@test.com", loader);
+        cache.get("a@test.com", loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testGet_staysBounded() {
+        PrincipalCache cache = new PrincipalCache(60000, 2);
+
+        cache.get("a@test.com", loader);
+        cache.get("bb@test.com", loader);
+        cache.get("ccc@test.com", loader);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testOnUserChanged_dropsThatUser() {
+        PrincipalCache cache = new PrincipalCache(60000, 10);
+        UserDetailsImpl principal = cache.get("a@test.com", loader);
+        cache.get("bb@test.com", loader);
+
+        cache.onUserChanged(new UserChangedEvent(principal.getId()));
+        cache.get("a@test.com", loader);
+        cache.get("bb@test.com", loader);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testGet_evictsTheOldestEntryWhenFull() {
+        PrincipalCache cache = new PrincipalCache(60000, 2);
+
+        cache.get("a@test.com", loader);
+        cache.get("bb@test.com", loader);
+        cache.invalidate("bb@test.com");
+        cache.get("bb@test.com", loader);
+        cache.get("ccc@test.com", loader);
+        cache.get("bb@test.com", loader);
+        cache.get("ccc@test.com", loader);
+
+        assertEquals(4, loads.get());
+        assertEquals(1, cache.getEvictions());
+        cache.get("a@test.com", loader);
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void testOnUserChanged_dropsEveryEmailCachedForThatUser() {
+        PrincipalCache cache = new PrincipalCache(60000, 10);
+        Function<String, UserDetailsImpl> sameUser = email -> {
+            loads.incrementAndGet();
+            return UserDetailsImpl.builder().id(7L).username(email).build();
+        };
+        cache.get("old@test.com", sameUser);
+        cache.get("new@test.com", sameUser);
+        cache.get("bb@test.com", loader);
+
+        cache.onUserChanged(new UserChangedEvent(7L));
+
+        assertEquals(1, cache.size());
+        cache.get("bb@test.com", loader);
+        assertEquals(3, loads.get());
+    }
+}
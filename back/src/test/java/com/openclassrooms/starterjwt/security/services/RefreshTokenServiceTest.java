@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.OffsetDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {"oc.app.jwtStateless=true", "oc.app.jwtStatelessExpirationMs=60000"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RefreshTokenServiceTest {
+    @Autowired private MockMvc mvc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testRefresh_rotatesAndRevokesFamilyOnReuse() throws Exception {
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values ('refresh@test.com', 'Re', 'Fresh', ?, false)",
+                passwordEncoder.encode("test!1234"));
+        Long userId = jdbcTemplate.queryForObject("select id from USERS where email = 'refresh@test.com'", Long.class);
+
+        JsonNode login = postOk("/api/auth/login", "{\"email\":\"refresh@test.com\",\"password\":\"test!1234\"}");
+        long tokenExpiresAt = epochMillis(login.get("tokenExpiresAt"));
+        assertTrue(tokenExpiresAt - System.currentTimeMillis() <= 60000);
+        assertTrue(epochMillis(login.get("refreshTokenExpiresAt")) > tokenExpiresAt);
+
+        String first = login.get("refreshToken").asText();
+        JsonNode rotated = postOk("/api/auth/refresh", refreshJson(first));
+        String second = rotated.get("refreshToken").asText();
+        assertNotEquals(first, second);
+        mvc.perform(get("/api/user/{id}", userId).header("Authorization", "Bearer " + rotated.get("token").asText()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.email").value("refresh@test.com"));
+
+        mvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON).content(refreshJson(first)))
+            .andExpect(status().isUnauthorized());
+        mvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON).content(refreshJson(second)))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testLogout_revokesRefreshTokenFamily() throws Exception {
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values ('logout-refresh@test.com', 'Log', 'Out', ?, false)",
+                passwordEncoder.encode("test!1234"));
+        JsonNode login = postOk("/api/auth/login", "{\"email\":\"logout-refresh@test.com\",\"password\":\"test!1234\"}");
+        String refreshToken = login.get("refreshToken").asText();
+
+        mvc.perform(post("/api/auth/logout")
+                .header("Authorization", "Bearer " + login.get("token").asText())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(refreshJson(refreshToken)))
+            .andExpect(status().isOk());
+
+        mvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON).content(refreshJson(refreshToken)))
+            .andExpect(status().isUnauthorized());
+    }
+
+    private JsonNode postOk(String path, String body) throws Exception {
+        String response = mvc.perform(post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private long epochMillis(JsonNode date) {
+        return OffsetDateTime.parse(date.asText()).toInstant().toEpochMilli();
+    }
+
+    private String refreshJson(String refreshToken) {
+        return "{\"refreshToken\":\"" + refreshToken + "\"}";
+    }
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "oc.app.passwordHashing.strength=5")
+@ActiveProfiles("test")
+public class RehashingAuthenticationProviderTest {
+    @Autowired private AuthenticationManager authenticationManager;
+    @Autowired private RehashingAuthenticationProvider authenticationProvider;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLogin_rehashesOutdatedPasswordInBackground() throws Exception {
+        String legacy = new BCryptPasswordEncoder(4).encode("test!1234");
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'Re', 'Hash', ?, false)",
+                "rehash@test.com", legacy);
+        long rehashed = authenticationProvider.getRehashed();
+
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("rehash@test.com", "test!1234"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (authenticationProvider.getRehashed() == rehashed && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(rehashed + 1, authenticationProvider.getRehashed());
+        String stored = jdbcTemplate.queryForObject("select password from USERS where email = 'rehash@test.com'", String.class);
+        assertTrue(stored.startsWith("{bcrypt}$2a$05$"));
+
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("rehash@test.com", "test!1234"));
+        Thread.sleep(50);
+        assertEquals(rehashed + 1, authenticationProvider.getRehashed());
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class TokenRevocationServiceTest {
+    @Autowired private MockMvc mvc;
+    @Autowired private JwtUtils jwtUtils;
+    @Autowired private TokenRevocationService tokenRevocationService;
+    @Autowired private RefreshTokenService refreshTokenService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLogout_rejectsTokenAfterwards() throws Exception {
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values ('logout@test.com', 'Log', 'Out', 'secret', false)");
+        Long userId = jdbcTemplate.queryForObject("select id from USERS where email = 'logout@test.com'", Long.class);
+        String jwt = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.builder().username("logout@test.com").build(), null));
+        String token = "Bearer " + jwt;
+        long filterHits = tokenRevocationService.getFilterHits();
+
+        mvc.perform(get("/api/user/{id}", userId).header("Authorization", token))
+            .andExpect(status().isOk());
+        assertEquals(filterHits, tokenRevocationService.getFilterHits());
+
+        mvc.perform(post("/api/auth/logout").header("Authorization", token))
+            .andExpect(status().isOk());
+
+        mvc.perform(get("/api/user/{id}", userId).header("Authorization", token))
+            .andExpect(status().isUnauthorized());
+        assertEquals(filterHits + 1, tokenRevocationService.getFilterHits());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from REVOKED_TOKENS where token_id = ?",
+                Integer.class, jwtUtils.parseJwtToken(jwt).getId()));
+    }
+
+    @Test
+    public void testRebuild_keepsActiveRevocationsAndPurgesExpiredOnes() {
+        String active = UUID.randomUUID().toString();
+        String expired = UUID.randomUUID().toString();
+        tokenRevocationService.revoke(active, new Date(System.currentTimeMillis() + 60000));
+        tokenRevocationService.revoke(expired, new Date(System.currentTimeMillis() - 1000));
+
+        tokenRevocationService.rebuild();
+
+        assertTrue(tokenRevocationService.isRevoked(active));
+        assertFalse(tokenRevocationService.isRevoked(expired));
+        assertFalse(tokenRevocationService.isRevoked(null));
+    }
+
+    @Test
+    public void testDeleteAccount_revokesEveryTokenAndRefreshFamilyOfTheUser() throws Exception {
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values ('leaving@test.com', 'Lea', 'Ving', 'secret', false)");
+        Long userId = jdbcTemplate.queryForObject("select id from USERS where email = 'leaving@test.com'", Long.class);
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(userId).username("leaving@test.com").build();
+        String current = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+        String other = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+        String refreshToken = refreshTokenService.issue(principal).getToken();
+
+        mvc.perform(delete("/api/user/{id}", userId).header("Authorization", "Bearer " + current))
+            .andExpect(status().isOk());
+
+        assertTrue(tokenRevocationService.isTokenRevoked(jwtUtils.parseJwtToken(current)));
+        assertTrue(tokenRevocationService.isTokenRevoked(jwtUtils.parseJwtToken(other)));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from REFRESH_TOKENS where user_id = ? and revoked = false",
+                Integer.class, userId));
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(refreshToken));
+    }
+
+    @Test
+    public void testLoad_withoutDatabaseChecksTheTableOnceItIsBack() {
+        RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+        when(repository.deleteExpired(any())).thenThrow(new DataAccessResourceFailureException("down"));
+        TokenRevocationService service = new TokenRevocationService(repository, jwtUtils, 100, 0.01, 10000, 3600000);
+        String revoked = UUID.randomUUID().toString();
+        when(repository.findById(revoked)).thenReturn(Optional.of(RevokedToken.builder().id(revoked).build()));
+
+        service.load();
+
+        assertTrue(service.isRevoked(revoked));
+        assertFalse(service.isRevoked(UUID.randomUUID().toString()));
+    }
+}
@@ -0,0 +1,157 @@
+package com.openclassrooms.starterjwt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+
+@SpringBootTest(properties = "oc.app.sessionCatalog.enabled=true")
+@ActiveProfiles("test")
+public class SessionCatalogTest {
+    @Autowired private SessionCatalog sessionCatalog;
+    @Autowired private SessionService sessionService;
+    @SpyBean private SessionMapper sessionMapper;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @SpyBean private SessionRepository sessionRepository;
+
+    @Test
+    public void testCatalog_servesReadsFromMemoryAndFollowsWrites() {
+        Session morning = sessionService.create(buildSession("Morning", 1000L));
+        Session evening = sessionService.create(buildSession("Evening", 2000L));
+        jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values ('catalog@test.com', 'Cat', 'Alog', 'secret', false)");
+        Long userId = jdbcTemplate.queryForObject("select id from USERS where email = 'catalog@test.com'", Long.class);
+
+        assertTrue(sessionCatalog.isComplete());
+        long hits = sessionCatalog.getHits();
+        clearInvocations(sessionRepository);
+
+        SessionDto found = sessionCatalog.findById(morning.getId());
+        SessionPageDto page = sessionCatalog.findPage(null, null, null, null, 1);
+        SessionPageDto next = sessionCatalog.findPage(null, null, null, page.getNextCursor(), 1);
+
+        assertEquals("Morning", found.getName());
+        assertEquals(morning.getId(), page.getItems().get(0).getId());
+        assertEquals(evening.getId(), next.getItems().get(0).getId());
+        assertNull(next.getNextCursor());
+        assertEquals(2, sessionCatalog.findAll().size());
+        assertNull(sessionCatalog.findById(-1L));
+        verifyNoInteractions(sessionRepository);
+        assertEquals(hits + 5, sessionCatalog.getHits());
+
+        sessionService.participate(morning.getId(), userId);
+        assertEquals(1, sessionCatalog.findById(morning.getId()).getUsers().size());
+
+        evening.setName("Late evening");
+        sessionService.update(evening.getId(), evening);
+        assertEquals("Late evening", sessionCatalog.findById(evening.getId()).getName());
+
+        sessionService.noLongerParticipate(morning.getId(), userId);
+        sessionService.delete(morning.getId());
+        assertNull(sessionCatalog.findById(morning.getId()));
+        assertEquals(sessionCatalog.findAll().stream().map(SessionDto::getId).collect(Collectors.toList()),
+                sessionService.findAll().stream().map(Session::getId).collect(Collectors.toList()));
+        assertEquals(0, sessionCatalog.getEvictions());
+    }
+
+    @Test
+    public void testOnSessionChanged_olderReadNeverOverwritesNewerOne() throws Exception {
+        Session session = sessionService.create(buildSession("Before", 3000L));
+        Long id = session.getId();
+        CountDownLatch staleRead = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Object result = invocation.callRealMethod();
+            if ("stale-refresh".equals(Thread.currentThread().getName())) {
+                staleRead.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return result;
+        }).when(sessionMapper).toDto(any(Session.class));
+
+        try {
+            Thread stale = new Thread(() -> sessionCatalog.onSessionChanged(new SessionChangedEvent(id)), "stale-refresh");
+            stale.start();
+            assertTrue(staleRead.await(5, TimeUnit.SECONDS));
+
+            jdbcTemplate.update("update SESSIONS set name = 'After' where id = ?", id);
+            Thread fresh = new Thread(() -> sessionCatalog.onSessionChanged(new SessionChangedEvent(id)), "fresh-refresh");
+            fresh.start();
+            fresh.join(500);
+            release.countDown();
+            stale.join(5000);
+            fresh.join(5000);
+        } finally {
+            reset(sessionMapper);
+        }
+
+        assertEquals("After", sessionCatalog.findById(id).getName());
+        sessionService.delete(id);
+    }
+
+    @Test
+    public void testGetETag_followsCatalogVersionWithoutQueries() {
+        Session session = sessionService.create(buildSession("Tagged", 5000L));
+        clearInvocations(sessionRepository);
+
+        String firstPage = sessionCatalog.getETag(false, null, null, null, null, 1);
+        String secondPage = sessionCatalog.getETag(false, null, null, null, "cursor", 1);
+        String one = sessionCatalog.getETag(session.getId());
+        verifyNoInteractions(sessionRepository);
+        assertFalse(firstPage.equals(secondPage));
+        assertEquals(firstPage, sessionCatalog.getETag(false, null, null, null, null, 1));
+        assertEquals(sessionService.getETag(session.getId()), one);
+
+        sessionService.delete(session.getId());
+        assertFalse(firstPage.equals(sessionCatalog.getETag(false, null, null, null, null, 1)));
+        assertNull(sessionCatalog.getETag(session.getId()));
+    }
+
+    @Test
+    public void testLoad_stopsAtMaxEntries() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(sessionService.create(buildSession("Bounded " + i, 4000L + i)).getId());
+        }
+        SessionCatalog bounded = new SessionCatalog(sessionService, sessionMapper, true, 2);
+
+        bounded.load();
+
+        assertEquals(2, bounded.size());
+        assertFalse(bounded.isComplete());
+        assertEquals(0, bounded.getEvictions());
+        ids.forEach(sessionService::delete);
+    }
+
+    private Session buildSession(String name, long date) {
+        return Session.builder()
+                .name(name)
+                .date(new Date(date))
+                .description("Catalog " + name)
+                .build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.starterjwt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+
+public class SessionSearchIndexTest {
+    private SessionService sessionService;
+    private SessionSearchIndex index;
+    private List<Session> sessions;
+
+    @BeforeEach
+    public void setUp() {
+        sessionService = mock(SessionService.class);
+        sessions = Arrays.asList(
+                buildSession(1L, "Vinyasa flow", "Enchaînements dynamiques", "Margot", "Delahaye"),
+                buildSession(2L, "Yoga prénatal", "Séance douce pour futures mamans, vinyasa léger", "Hélène", "Martin"),
+                buildSession(3L, "Étirements", "Retour au calme, cœur ouvert", "Margot", "Delahaye"));
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<Session>>>getArgument(0).accept(sessions);
+            return null;
+        }).when(sessionService).exportAll(any());
+
+        index = new SessionSearchIndex(sessionService, true);
+        index.load();
+    }
+
+    @Test
+    public void testTokenize_foldsAccentsAndCase() {
+        assertEquals(Arrays.asList("seance", "prenatale", "coeur", "ete"), SessionSearchIndex.tokenize("Séance PRÉNATALE — cœur, l'été"));
+    }
+
+    @Test
+    public void testSearch_accentInsensitive() {
+        assertEquals(Arrays.asList(2L), index.search("prenatal", 10));
+        assertEquals(Arrays.asList(3L), index.search("ETIREMENTS", 10));
+        assertEquals(Arrays.asList(3L), index.search("coeur", 10));
+    }
+
+    @Test
+    public void testSearch_prefixAndRanking() {
+        assertEquals(Arrays.asList(1L, 2L), index.search("vinya", 10));
+        assertEquals(Arrays.asList(2L), index.search("vinya mam", 10));
+    }
+
+    @Test
+    public void testSearch_teacherName() {
+        assertEquals(Arrays.asList(1L, 3L), index.search("delahaye", 10));
+        assertEquals(Arrays.asList(2L), index.search("helene", 10));
+    }
+
+    @Test
+    public void testSearch_limitAndNoMatch() {
+        assertEquals(1, index.search("margot", 1).size());
+        assertTrue(index.search("pilates", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void testOnSessionChanged_reindexesAndRemoves() {
+        when(sessionService.getById(1L)).thenReturn(buildSession(1L, "Hatha", "Postures tenues", "Margot", "Delahaye"));
+        index.onSessionChanged(new SessionChangedEvent(1L));
+
+        assertEquals(Arrays.asList(2L), index.search("vinyasa", 10));
+        assertEquals(Arrays.asList(1L), index.search("hatha", 10));
+
+        index.onSessionChanged(new SessionChangedEvent(3L));
+
+        List<Long> margot = index.search("margot", 10);
+        assertEquals(Arrays.asList(1L), margot);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testOnSessionChanged_olderReadNeverOverwritesNewerOne() throws Exception {
+        CountDownLatch staleRead = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(sessionService.getById(1L)).thenAnswer(invocation -> {
+            staleRead.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return buildSession(1L, "Hatha", "Postures tenues", "Margot", "Delahaye");
+        }).thenReturn(buildSession(1L, "Kundalini", "Respiration", "Margot", "Delahaye"));
+
+        Thread stale = new Thread(() -> index.onSessionChanged(new SessionChangedEvent(1L)));
+        stale.start();
+        assertTrue(staleRead.await(10, TimeUnit.SECONDS));
+        Thread fresh = new Thread(() -> index.onSessionChanged(new SessionChangedEvent(1L)));
+        fresh.start();
+        fresh.join(200);
+        release.countDown();
+        stale.join(10000);
+        fresh.join(10000);
+
+        assertEquals(Arrays.asList(1L), index.search("kundalini", 10));
+        assertTrue(index.search("hatha", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_withoutIndexRanksTheSessionsMatchingTheLongestToken() {
+        when(sessionService.findContaining("vinya", SessionSearchIndex.FALLBACK_CANDIDATES)).thenReturn(sessions.subList(0, 2));
+        when(sessionService.findContaining("coeur", SessionSearchIndex.FALLBACK_CANDIDATES)).thenReturn(sessions.subList(2, 3));
+        when(sessionService.findContaining("mamans", SessionSearchIndex.FALLBACK_CANDIDATES)).thenReturn(sessions.subList(1, 2));
+        SessionSearchIndex disabled = new SessionSearchIndex(sessionService, false);
+        disabled.load();
+        disabled.onSessionChanged(new SessionChangedEvent(1L));
+
+        assertEquals(0, disabled.size());
+        assertEquals(Arrays.asList(1L, 2L), disabled.search("vinya", 10));
+        assertEquals(Arrays.asList(3L), disabled.search("coeur", 10));
+        assertEquals(Arrays.asList(2L), disabled.search("vinya mamans", 10));
+        assertTrue(disabled.search(" - ", 10).isEmpty());
+        verify(sessionService, never()).findContaining(eq(""), anyInt());
+        verify(sessionService, times(1)).exportAll(any());
+    }
+
+    private Session buildSession(Long id, String name, String description, String firstName, String lastName) {
+        Teacher teacher = new Teacher();
+        teacher.setFirstName(firstName);
+        teacher.setLastName(lastName);
+
+        Session session = new Session();
+        session.setId(id);
+        session.setName(name);
+        session.setDescription(description);
+        session.setDate(new Date());
+        session.setTeacher(teacher);
+        return session;
+    }
+}
@@ -0,0 +1,155 @@
+package com.openclassrooms.starterjwt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+
+import lombok.extern.log4j.Log4j2;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Log4j2
+public class SessionServiceBulkTest {
+    private static final int USERS = 500;
+
+    /**
+     * Statements executed through the DataSource, by Hibernate and JdbcTemplate alike,
+     * with a JDBC batch counting once: the user lookup, the session lock, the current
+     * participants and waitlist, one batch each for the new ones and the session's touch.
+     * A per-user insert would blow this.
+     */
+    private static final int MAX_STATEMENTS = 7;
+
+    @Autowired private SessionService sessionService;
+    @Autowired private SessionRepository sessionRepository;
+    @Autowired private WaitlistRepository waitlistRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private JdbcExecutionCounter jdbcExecutionCounter;
+
+    @Test
+    public void testParticipateAll_enrolsWholeGroup() {
+        Session session = sessionRepository.save(Session.builder()
+                .name("Corporate")
+                .date(new Date())
+                .description("Whole company")
+                .capacity(USERS - 20)
+                .build());
+
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'Bulk', 'User', 'secret', false)",
+                    "bulk" + i + "@test.com");
+        }
+        userIds.addAll(jdbcTemplate.queryForList("select id from USERS where email like 'bulk%' order by id", Long.class));
+
+        long statementsBefore = jdbcExecutionCounter.getExecuted();
+        long begin = System.nanoTime();
+        List<ParticipationResult> results = sessionService.participateAll(Collections.singletonList(session.getId()), userIds);
+        long elapsedNanos = System.nanoTime() - begin;
+        long statements = jdbcExecutionCounter.getExecuted() - statementsBefore;
+        log.info("Enrolled {} users in one session with {} statements in {} ms",
+                USERS, statements, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        assertTrue(statements <= MAX_STATEMENTS, "enrolling " + USERS + " users executed " + statements + " statements");
+        assertEquals(USERS, results.size());
+        assertEquals(USERS - 20, sessionRepository.countParticipants(session.getId()));
+        assertEquals(20, waitlistRepository.countBySessionId(session.getId()));
+        assertEquals(userIds.get(USERS - 20), waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId()).get().getUserId());
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == ParticipationStatus.PARTICIPATING
+                || result.getStatus() == ParticipationStatus.WAITLISTED));
+
+        List<ParticipationResult> again = sessionService.participateAll(Collections.singletonList(session.getId()), userIds.subList(0, 3));
+        assertTrue(again.stream().allMatch(result -> result.getStatus() == ParticipationStatus.ALREADY_PARTICIPATING));
+    }
+
+    /**
+     * Wraps the DataSource to count every statement execution, including the JDBC
+     * batches that Hibernate's statement inspector never sees.
+     */
+    @TestConfiguration
+    static class JdbcExecutionCounting {
+        @Bean
+        static JdbcExecutionCounter jdbcExecutionCounter() {
+            return new JdbcExecutionCounter();
+        }
+    }
+
+    static class JdbcExecutionCounter implements BeanPostProcessor {
+        private final LongAdder executed = new LongAdder();
+
+        long getExecuted() {
+            return executed.sum();
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return counting(super.getConnection(), Connection.class);
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return counting(super.getConnection(username, password), Connection.class);
+                }
+            };
+        }
+
+        private <T> T counting(T target, Class<T> type) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+                if (target instanceof Statement && method.getName().startsWith("execute")) {
+                    executed.increment();
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof CallableStatement) {
+                    return counting((CallableStatement) result, CallableStatement.class);
+                }
+                if (result instanceof PreparedStatement) {
+                    return counting((PreparedStatement) result, PreparedStatement.class);
+                }
+                if (result instanceof Statement) {
+                    return counting((Statement) result, Statement.class);
+                }
+                return result;
+            }));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.openclassrooms.starterjwt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+
+import lombok.extern.log4j.Log4j2;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Log4j2
+public class SessionServiceConcurrencyTest {
+    private static final int CAPACITY = 25;
+    private static final int USERS = 400;
+    private static final int THREADS = 32;
+
+    @Autowired private SessionService sessionService;
+    @Autowired private SessionRepository sessionRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WaitlistRepository waitlistRepository;
+
+    @Test
+    public void testParticipate_rushNeverOverbooks() throws Exception {
+        Session session = sessionRepository.save(Session.builder()
+                .name("Vinyasa")
+                .date(new Date())
+                .description("Class opening rush")
+                .capacity(CAPACITY)
+                .build());
+        Long sessionId = session.getId();
+
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = userRepository.save(new User("rush" + i + "@test.com", "Rush", "User", "secret", false));
+            userIds.add(user.getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ParticipationStatus>> results = new ArrayList<>();
+        for (Long userId : userIds) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return sessionService.participate(sessionId, userId);
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Map<ParticipationStatus, Integer> statuses = new EnumMap<>(ParticipationStatus.class);
+        for (Future<ParticipationStatus> result : results) {
+            statuses.merge(result.get(30, TimeUnit.SECONDS), 1, Integer::sum);
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        pool.shutdown();
+        log.info("{} sign-ups on one session with {} threads in {} ms ({} sign-ups/s)",
+                USERS, THREADS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(USERS / (elapsedNanos / 1e9)));
+
+        assertEquals(CAPACITY, statuses.get(ParticipationStatus.PARTICIPATING));
+        assertEquals(USERS - CAPACITY, statuses.get(ParticipationStatus.WAITLISTED));
+        assertEquals(CAPACITY, sessionRepository.countParticipants(sessionId));
+        assertEquals(USERS - CAPACITY, waitlistRepository.countBySessionId(sessionId));
+
+        List<Long> seated = new ArrayList<>(sessionService.findParticipantIds(List.of(sessionId)).get(sessionId));
+        Long firstWaiting = waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId).get().getUserId();
+        sessionService.noLongerParticipate(sessionId, seated.get(0));
+
+        List<Long> afterLeave = sessionService.findParticipantIds(List.of(sessionId)).get(sessionId);
+        assertEquals(CAPACITY, afterLeave.size());
+        assertEquals(true, afterLeave.contains(firstWaiting));
+        assertEquals(USERS - CAPACITY - 1, waitlistRepository.countBySessionId(sessionId));
+    }
+
+    @Test
+    public void testUpdate_keepsParticipantsAndPromotesWhenCapacityGrows() {
+        Session session = sessionRepository.save(Session.builder()
+                .name("Yin")
+                .date(new Date())
+                .description("Quiet class")
+                .capacity(1)
+                .build());
+        Long sessionId = session.getId();
+        User seated = userRepository.save(new User("update-seated@test.com", "Seated", "User", "secret", false));
+        User waiting = userRepository.save(new User("update-waiting@test.com", "Waiting", "User", "secret", false));
+        User stranger = userRepository.save(new User("update-stranger@test.com", "Stranger", "User", "secret", false));
+        assertEquals(ParticipationStatus.PARTICIPATING, sessionService.participate(sessionId, seated.getId()));
+        assertEquals(ParticipationStatus.WAITLISTED, sessionService.participate(sessionId, waiting.getId()));
+
+        List<User> staleParticipants = new ArrayList<>();
+        staleParticipants.add(stranger);
+        sessionService.update(sessionId, Session.builder()
+                .name("Yin")
+                .date(new Date())
+                .description("Quiet class, bigger room")
+                .capacity(2)
+                .users(staleParticipants)
+                .build());
+
+        List<Long> participants = sessionService.findParticipantIds(List.of(sessionId)).get(sessionId);
+        assertEquals(2, participants.size());
+        assertTrue(participants.contains(seated.getId()));
+        assertTrue(participants.contains(waiting.getId()));
+        assertEquals(0, waitlistRepository.countBySessionId(sessionId));
+    }
+
+    @Test
+    public void testUpdate_rejectsCapacityBelowSeatedParticipants() {
+        Session session = sessionRepository.save(Session.builder()
+                .name("Hatha")
+                .date(new Date())
+                .description("Full class")
+                .capacity(2)
+                .build());
+        Long sessionId = session.getId();
+        for (int i = 0; i < 2; i++) {
+            User user = userRepository.save(new User("shrink" + i + "@test.com", "Shrink", "User", "secret", false));
+            assertEquals(ParticipationStatus.PARTICIPATING, sessionService.participate(sessionId, user.getId()));
+        }
+
+        assertThrows(BadRequestException.class, () -> sessionService.update(sessionId, Session.builder()
+                .name("Hatha")
+                .date(new Date())
+                .description("Full class, smaller room")
+                .capacity(1)
+                .build()));
+
+        assertEquals(2, sessionRepository.findById(sessionId).get().getCapacity());
+        assertEquals(2, sessionRepository.countParticipants(sessionId));
+    }
+}
@@ -2,8 +2,12 @@ package com.openclassrooms.starterjwt.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +17,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.TableVersion;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 
 @SpringBootTest
@@ -49,4 +54,18 @@ public class TeacherServiceTest {
         assertNotNull(result);
         assertEquals(result.getId(), 1L);
     }
+
+    @Test
+    public void testGetETag_readsTableVersionOncePerTtl() {
+        TableVersion version = mock(TableVersion.class);
+        when(version.getLastUpdated()).thenReturn(LocalDateTime.of(2025, 1, 1, 10, 0));
+        when(version.getRowCount()).thenReturn(2L);
+        when(teacherRepository.findTableVersion()).thenReturn(version);
+
+        String etag = teacherService.getETag();
+
+        assertNotNull(etag);
+        assertEquals(etag, teacherService.getETag());
+        verify(teacherRepository, times(1)).findTableVersion();
+    }
 }